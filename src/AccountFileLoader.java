@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads patient account files by memory-mapping them and parsing
+ * line-aligned chunks in parallel on the common fork-join pool.
+ *
+ * Rationale: Reading a large accounts file line by line on one thread
+ * delays startup of both Main and MainGUI. Splitting the file at line
+ * boundaries lets every chunk be parsed independently, and joining the
+ * chunk results in order keeps "last record wins" semantics for the
+ * journal replay in TextFilePatientRepository.
+ */
+class AccountFileLoader {
+    /** Target size of one parsed chunk; smaller files are parsed as a single chunk */
+    private static final long CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private AccountFileLoader() {
+    }
+
+    /**
+     * Parses every record of the given file, in file order.
+     * Supports both the 2-field and the 7-field account formats; blank,
+     * unrecognized and invalid lines (such as a non-numeric age) are
+     * skipped one record at a time, so the rest of their chunk still loads.
+     *
+     * @param fileName The accounts file (or journal) to load
+     * @return The parsed patients in the order they appear in the file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static List<Patient> load(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            List<long[]> chunks = splitAtLineBoundaries(channel);
+            if (chunks.isEmpty()) {
+                return new ArrayList<>();
+            }
+            if (chunks.size() == 1) {
+                return parseChunk(channel, chunks.get(0)[0], chunks.get(0)[1]);
+            }
+            return ForkJoinPool.commonPool().invoke(new ChunkTask(channel, chunks, 0, chunks.size()));
+        }
+    }
+
+    /**
+     * Splits the file into [start, end) ranges of roughly CHUNK_SIZE bytes,
+     * moving every cut forward to just after the next newline.
+     */
+    private static List<long[]> splitAtLineBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + CHUNK_SIZE, size);
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                int newline = -1;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            chunks.add(new long[]{start, Math.min(end, size)});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Maps one line-aligned region of the file and parses its records.
+     */
+    private static List<Patient> parseChunk(FileChannel channel, long start, long end) throws IOException {
+        List<Patient> patients = new ArrayList<>();
+        if (end <= start) {
+            return patients;
+        }
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        byte[] bytes = new byte[region.remaining()];
+        region.get(bytes);
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                int lineEnd = (i > lineStart && bytes[i - 1] == '\r') ? i - 1 : i;
+                if (lineEnd > lineStart) {
+                    String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+                    if (!line.trim().isEmpty()) {
+                        Patient patient = TextFilePatientRepository.parseRecord(line);
+                        if (patient != null) {
+                            patients.add(patient);
+                        }
+                    }
+                }
+                lineStart = i + 1;
+            }
+        }
+        return patients;
+    }
+
+    /**
+     * Divide-and-conquer task over a range of chunks; results are
+     * concatenated left to right so file order is preserved.
+     * ForkJoinTask is Serializable, but these tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static class ChunkTask extends RecursiveTask<List<Patient>> {
+        private final FileChannel channel;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, List<long[]> chunks, int from, int to) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Patient> compute() {
+            if (to - from == 1) {
+                long[] chunk = chunks.get(from);
+                try {
+                    return parseChunk(channel, chunk[0], chunk[1]);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Error mapping accounts file: " + e.getMessage(), e);
+                }
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, chunks, from, mid);
+            left.fork();
+            List<Patient> right = new ChunkTask(channel, chunks, mid, to).compute();
+            List<Patient> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+    }
+}
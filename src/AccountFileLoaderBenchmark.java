@@ -0,0 +1,104 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares AccountFileLoader's parallel memory-mapped load with the
+ * line-by-line BufferedReader load it replaced, on the same generated
+ * accounts file:
+ *   sequential - one thread, readLine() and parseRecord() per line
+ *   mapped     - AccountFileLoader.load()
+ *
+ * The file is written to a temporary directory and deleted afterwards.
+ * Each loader runs a few untimed rounds first so both are measured after
+ * JIT warm-up; the reported figure is the best of the timed rounds.
+ * Usage: java AccountFileLoaderBenchmark [accounts] [rounds]
+ */
+class AccountFileLoaderBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File directory = Files.createTempDirectory("loader-benchmark").toFile();
+        File file = new File(directory, "accounts.txt");
+        try {
+            write(file, accounts);
+            double megabytes = file.length() / (1024.0 * 1024.0);
+            System.out.printf("%-12s %12s %10s %10s   (%d accounts, %.1f MB, %d cores)%n",
+                    "loader", "records/s", "MB/s", "ms", accounts, megabytes, Runtime.getRuntime().availableProcessors());
+
+            int sequentialCount = sequential(file).size();
+            int mappedCount = AccountFileLoader.load(file.getPath()).size();
+            for (int i = 0; i < 2; i++) {
+                sequential(file);
+                AccountFileLoader.load(file.getPath());
+            }
+
+            long sequentialBest = Long.MAX_VALUE;
+            long mappedBest = Long.MAX_VALUE;
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                sequential(file);
+                sequentialBest = Math.min(sequentialBest, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                AccountFileLoader.load(file.getPath());
+                mappedBest = Math.min(mappedBest, System.nanoTime() - start);
+            }
+            System.out.println(line("sequential", accounts, megabytes, sequentialBest));
+            System.out.println(line("mapped", accounts, megabytes, mappedBest));
+            System.out.printf("speedup %.2fx%n", sequentialBest / (double) mappedBest);
+
+            if (sequentialCount != accounts || mappedCount != accounts) {
+                System.out.println("FAILED: sequential loaded " + sequentialCount + ", mapped loaded "
+                        + mappedCount + " of " + accounts + " accounts");
+                System.exit(1);
+            }
+            System.out.println("PASSED");
+        } finally {
+            file.delete();
+            directory.delete();
+        }
+    }
+
+    /**
+     * The single-threaded loader AccountFileLoader replaced.
+     */
+    private static List<Patient> sequential(File file) throws IOException {
+        List<Patient> patients = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Patient patient = TextFilePatientRepository.parseRecord(line);
+                if (patient != null) {
+                    patients.add(patient);
+                }
+            }
+        }
+        return patients;
+    }
+
+    private static void write(File file, int accounts) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int k = 0; k < accounts; k++) {
+                Patient patient = new Patient("user" + k, "secret", "Name " + k, 20 + k % 50, k % 2 == 0, "01234567890", "Cairo");
+                writer.write(TextFilePatientRepository.formatRecord(patient));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String line(String loader, int accounts, double megabytes, long nanos) {
+        double seconds = nanos / 1e9;
+        return String.format("%-12s %12.0f %10.1f %10.1f", loader, accounts / seconds, megabytes / seconds, nanos / 1e6);
+    }
+}
@@ -0,0 +1,133 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures AccountManager's username lookups as the number of accounts
+ * grows, next to the ArrayList scan they replaced:
+ *   getUser - login and session lookups
+ *   taken   - isUsernameTaken(), the signup check
+ *   update  - updateUser() replacing an existing account
+ *   scan    - the old loop over every Patient comparing usernames
+ *
+ * One in-memory AccountManager is grown to each size in turn, and every
+ * lookup uses a fresh copy of an existing username, as a typed login
+ * would. Figures are ns per operation (best of the timed rounds) and the
+ * bytes the thread allocated per getUser/isUsernameTaken call. The scan
+ * does far fewer lookups at large sizes, since each one visits every account.
+ * 5M accounts need a heap of about 4 GB: java -Xmx4g AccountLookupBenchmark
+ * Usage: java AccountLookupBenchmark [lookups] [size...]
+ */
+class AccountLookupBenchmark {
+    /** Patients visited per size by the scan column, so it finishes at 5M accounts */
+    private static final long SCAN_BUDGET = 200_000_000L;
+
+    public static void main(String[] args) {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            sizes.add(Integer.parseInt(args[i]));
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(10_000);
+            sizes.add(100_000);
+            sizes.add(1_000_000);
+            sizes.add(5_000_000);
+        }
+
+        AccountManager manager = new AccountManager(new InMemoryPatientRepository(), false);
+        List<Patient> list = new ArrayList<>();
+        Random random = new Random(42);
+        boolean measured = allocatedBytes() >= 0;
+        boolean passed = true;
+
+        System.out.printf("%10s %12s %12s %12s %12s %10s   (ns/op, %d lookups)%n",
+                "accounts", "getUser", "taken", "update", "scan", "B/op", lookups);
+        for (int size : sizes) {
+            for (int k = list.size(); k < size; k++) {
+                Patient patient = new Patient("user" + k, "secret", "Patient", 20 + k % 50, k % 2 == 0, "01234567890", "Cairo");
+                manager.saveUser(patient);
+                list.add(patient);
+            }
+            String[] keys = new String[lookups];
+            for (int i = 0; i < lookups; i++) {
+                keys[i] = new String(list.get(random.nextInt(size)).getUsername());
+            }
+
+            long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+            long lookupBytes = 0;
+            int missing = 0;
+            for (int round = 0; round < 5; round++) {
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                for (String key : keys) {
+                    if (manager.getUser(key) == null) {
+                        missing++;
+                    }
+                }
+                best[0] = Math.min(best[0], System.nanoTime() - start);
+                start = System.nanoTime();
+                for (String key : keys) {
+                    if (!manager.isUsernameTaken(key)) {
+                        missing++;
+                    }
+                }
+                best[1] = Math.min(best[1], System.nanoTime() - start);
+                lookupBytes = allocatedBytes() - bytes;
+                start = System.nanoTime();
+                for (int i = 0; i < keys.length; i += 10) {
+                    if (!manager.updateUser(list.get(i % size))) {
+                        missing++;
+                    }
+                }
+                best[2] = Math.min(best[2], System.nanoTime() - start);
+            }
+
+            int scans = (int) Math.max(10, Math.min(lookups, SCAN_BUDGET / size));
+            long start = System.nanoTime();
+            for (int i = 0; i < scans; i++) {
+                if (scan(list, keys[i]) == null) {
+                    missing++;
+                }
+            }
+            long scanTime = System.nanoTime() - start;
+
+            int updates = (keys.length + 9) / 10;
+            System.out.printf("%10d %12.1f %12.1f %12.1f %12.1f %10s%n", size,
+                    best[0] / (double) lookups, best[1] / (double) lookups, best[2] / (double) updates,
+                    scanTime / (double) scans, measured ? String.format("%.1f", lookupBytes / (2.0 * lookups)) : "n/a");
+            if (missing > 0) {
+                System.out.println("FAILED: " + missing + " lookups missed an existing account");
+                passed = false;
+            }
+        }
+        manager.close();
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * The lookup AccountManager did before accounts were indexed.
+     */
+    private static Patient scan(List<Patient> users, String username) {
+        for (Patient patient : users) {
+            if (patient.getUsername().equals(username)) {
+                return patient;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bytes allocated by this thread so far, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
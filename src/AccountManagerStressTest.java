@@ -0,0 +1,88 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress test for concurrent account sessions. Many threads race to sign up
+ * the same usernames; each winner updates and persists its account, and
+ * every hundredth username also triggers a full save (journal compaction).
+ * Afterwards the store is reloaded from disk and checked for:
+ *   - no duplicates: exactly one signup per username won, and storage
+ *     holds exactly one record per username
+ *   - no lost updates: every account reloads with its updated name
+ *
+ * Runs against a text store in a temporary directory.
+ * Usage: java AccountManagerStressTest [threads] [usernames] [attemptsPerUsername]
+ * Exits with status 1 if a check fails.
+ */
+class AccountManagerStressTest {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int usernames = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int attempts = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        File directory = Files.createTempDirectory("accounts-stress").toFile();
+        String fileName = new File(directory, "accounts.txt").getPath();
+        String journalFileName = new File(directory, "accounts.journal").getPath();
+        new File(fileName).createNewFile();
+        AccountManager manager = new AccountManager(new TextFilePatientRepository(fileName, journalFileName), false);
+        // Hashing is not under test; hash once and share it so signups race on the map, not PBKDF2
+        String password = manager.hashPassword("secret");
+
+        AtomicInteger won = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < usernames * attempts; i++) {
+            int k = i % usernames;
+            pool.execute(() -> {
+                Patient patient = new Patient("user" + k, password);
+                if (manager.addUser(patient)) {
+                    won.incrementAndGet();
+                    Patient updated = patient.updateDetails("Name " + k, 20, true, "01234567890", "Cairo");
+                    manager.updateUser(updated);
+                    manager.persistUser(updated);
+                }
+                if (k % 100 == 0) {
+                    manager.saveAllUsers();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        manager.saveAllUsers();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Patient> stored = new TextFilePatientRepository(fileName, journalFileName).loadAll();
+        Set<String> distinct = new HashSet<>();
+        int lost = 0;
+        for (Patient patient : stored) {
+            distinct.add(patient.getUsername());
+            String k = patient.getUsername().substring("user".length());
+            if (!("Name " + k).equals(patient.getName())) {
+                lost++;
+            }
+        }
+        lost += usernames - distinct.size();
+
+        System.out.printf("%d signup attempts on %d threads in %.1f s: %d won, %d records stored (%d distinct), %d lost updates%n",
+                usernames * attempts, threads, seconds, won.get(), stored.size(), distinct.size(), lost);
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+
+        boolean passed = won.get() == usernames && stored.size() == usernames && distinct.size() == usernames && lost == 0;
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+}
@@ -1,30 +1,64 @@
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * Represents a medical appointment/reservation in the system.
- * Tracks the relationship between a Patient, Doctor, weekday, and time slot.
+ * Tracks the relationship between a Patient, Doctor, date, and time slot.
  * 
  * Rationale: Appointment prevents double-booking by maintaining a static
  * booking registry that tracks which time slots are taken for each doctor
- * on each weekday. This ensures data integrity and prevents scheduling conflicts.
+ * on each date. This ensures data integrity and prevents scheduling conflicts.
  */
 class Appointment {
     private final Weekday weekday;
+    /** Calendar date; null only for reservations saved before the calendar used dates */
+    private final LocalDate date;
     private final String time;
     private final String doctorName;
+    /** Scheduling id in DOCTOR_REGISTRY; resolved from the name on first use if not given */
+    private int doctorId = -1;
     private final Patient patient;
     private String athleteDescription;
+    /** Set once by the cancellation that gives up this appointment's slot */
+    private final AtomicBoolean cancelled = new AtomicBoolean();
 
-    /** Available doctors in the system */
-    public static final String[] DOCTORS = {"Dr. Maiada", "Dr. Ahmed Mo'men", "Dr. Shehab Wael", "Dr. Omar Tamer"};
+    /** Bookable doctors; bookings and appointments refer to them by scheduling id */
+    public static final DoctorRegistry DOCTOR_REGISTRY = DoctorRegistry.clinic();
+    /** Available doctors in the system, indexed by scheduling id */
+    public static final String[] DOCTORS = DOCTOR_REGISTRY.names();
     /** Available time slots for appointments */
     public static final String[] TIMES = {"4:30 PM", "6:30 PM", "8:30 PM", "10:00 PM"};
     /** Available weekdays for appointments */
     public static final Weekday[] DAYS = {Weekday.SUNDAY, Weekday.TUESDAY, Weekday.THURSDAY};
+    /** Length of an appointment at one of the fixed TIMES, in minutes */
+    public static final int SLOT_MINUTES = 60;
+    /** Minute of the day at which each of TIMES starts */
+    private static final int[] TIME_MINUTES = minutesOfDay(TIMES);
+
+    private static int[] minutesOfDay(String[] times) {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
+        int[] minutes = new int[times.length];
+        for (int i = 0; i < times.length; i++) {
+            LocalTime clock = LocalTime.parse(times[i], format);
+            minutes[i] = clock.getHour() * 60 + clock.getMinute();
+        }
+        return minutes;
+    }
 
     // used in GUI for display
     public String[] getListOfDoctors(){
@@ -39,14 +73,100 @@ class Appointment {
         return DAYS ;
     }
 
+    /** Calendar file holding the booking registry; see SlotRegistry for the layout */
+    private static final String CALENDAR_FILE = System.getProperty("calendar.file", "calendar.dat");
+
+    /** Weeks ahead that can be booked */
+    private static final int DATED_HORIZON_WEEKS = 12;
+
     /**
-     * Static booking registry: doctor -> weekday -> set of booked times.
-     * This data structure prevents double-booking by tracking which time slots
-     * are already reserved for each doctor on each weekday.
-     * 
-     * Structure: Map<DoctorName, Map<Weekday, Set<Time>>>
+     * The calendar state, opened on first use rather than when Appointment
+     * is loaded, so code that only creates or reads appointments (tests,
+     * history loading, benchmarks) never opens or dirties the calendar file.
      */
-    private static final Map<String, Map<Weekday, Set<String>>> BOOKINGS = new HashMap<>();
+    private static class Bookings {
+        /**
+         * Static booking registry: one bit per (doctor, clinic day, time) slot over
+         * the booking horizon, kept in the memory-mapped calendar file so bookings
+         * survive restarts. Its days are used as a ring by CALENDAR.
+         */
+        static final SlotRegistry REGISTRY = openCalendar();
+
+        /**
+         * The appointment calendar on real dates. Every booking path (menus,
+         * waitlists, batches, series) books its slots here, and its index of who
+         * holds which slot is kept in a journal beside the calendar file.
+         */
+        static final DatedCalendar CALENDAR = new DatedCalendar(DOCTOR_REGISTRY, REGISTRY, TIMES, LocalDate.now(),
+                REGISTRY.isPersistent() ? new CalendarJournal(CALENDAR_FILE + ".idx") : null);
+
+        /** Waitlists for fully booked doctor/date pairs; in memory only */
+        static final AppointmentWaitlist WAITLIST = new AppointmentWaitlist(CALENDAR, DOCTOR_REGISTRY);
+
+        /**
+         * Holds of variable-length IntervalSchedule bookings on the fixed slots
+         * they overlap; in memory only, like the schedules themselves.
+         */
+        static final SlotHolds INTERVAL_HOLDS = new SlotHolds(REGISTRY);
+
+        /** The fixed slots each interval booking holds, and on which dates */
+        static final ConcurrentMap<IntervalSchedule.Booking, IntervalHold> INTERVAL_BOOKINGS = new ConcurrentHashMap<>();
+    }
+
+    /** Finds the live Patient for a username; see setPatientLookup() */
+    private static volatile Function<String, Patient> patientLookup = username -> null;
+
+    private static class IntervalHold {
+        final int doctorId;
+        /** Date the booking was made; its slots are on the next date of their weekday from here */
+        final LocalDate bookedOn;
+        /** Date the booking starts on; it expires once that day has passed */
+        final LocalDate date;
+        /** Weekly slots held, numbered weekday ordinal * TIMES.length + time */
+        final int[] slots;
+
+        IntervalHold(int doctorId, LocalDate bookedOn, LocalDate date, int[] slots) {
+            this.doctorId = doctorId;
+            this.bookedOn = bookedOn;
+            this.date = date;
+            this.slots = slots;
+        }
+
+        LocalDate slotDate(int i) {
+            return nextDate(bookedOn, Weekday.values()[slots[i] / TIMES.length]);
+        }
+
+        int slotTime(int i) {
+            return slots[i] % TIMES.length;
+        }
+
+        int bit(int i) {
+            return Bookings.CALENDAR.bitIndex(doctorId, slotDate(i), slotTime(i));
+        }
+
+        /**
+         * Releases every slot held, handing each slot whose last hold this
+         * was to the waitlist. Slots on dates that have passed were freed
+         * with their day and only lose the hold.
+         */
+        void release() {
+            for (int i = 0; i < slots.length; i++) {
+                LocalDate slotDate = slotDate(i);
+                int time = slotTime(i);
+                Bookings.INTERVAL_HOLDS.release(bit(i), () -> recordPromotion(Bookings.WAITLIST.handOver(doctorId, slotDate, time)));
+            }
+        }
+    }
+
+    private static SlotRegistry openCalendar() {
+        int days = DatedCalendar.dayCount(DATED_HORIZON_WEEKS);
+        try {
+            return SlotRegistry.open(DOCTOR_REGISTRY, days, TIMES, CALENDAR_FILE);
+        } catch (IOException e) {
+            System.out.println("Error opening calendar, bookings will not be saved: " + e.getMessage());
+            return new SlotRegistry(DOCTOR_REGISTRY, days, TIMES);
+        }
+    }
 
     /**
      * Constructs an Appointment with all required information.
@@ -54,6 +174,7 @@ class Appointment {
      */
     public Appointment(Weekday weekday, String time, String doctorName, Patient patient) {
         this.weekday = weekday;
+        this.date = null;
         this.time = time;
         this.doctorName = doctorName;
         this.patient = patient;
@@ -66,6 +187,32 @@ class Appointment {
      */
     public Appointment(Weekday weekday, String time, String doctorName, Patient patient, String athleteDescription) {
         this.weekday = weekday;
+        this.date = null;
+        this.time = time;
+        this.doctorName = doctorName;
+        this.patient = patient;
+        this.athleteDescription = athleteDescription != null ? athleteDescription : "";
+    }
+
+    /**
+     * Constructs an Appointment for a doctor given by scheduling id.
+     * @param doctorId The doctor's id in DOCTOR_REGISTRY
+     */
+    public Appointment(Weekday weekday, String time, int doctorId, Patient patient, String athleteDescription) {
+        this(weekday, time, DOCTOR_REGISTRY.nameOf(doctorId), patient, athleteDescription);
+        this.doctorId = doctorId;
+    }
+
+    /**
+     * Constructs an Appointment on a specific calendar date.
+     * @throws IllegalArgumentException if the clinic is closed on that day of the week
+     */
+    public Appointment(LocalDate date, String time, String doctorName, Patient patient, String athleteDescription) {
+        this.weekday = Weekday.fromDayOfWeek(date.getDayOfWeek());
+        if (weekday == null) {
+            throw new IllegalArgumentException("No appointments on " + date.getDayOfWeek() + " (" + date + ")");
+        }
+        this.date = date;
         this.time = time;
         this.doctorName = doctorName;
         this.patient = patient;
@@ -90,14 +237,15 @@ class Appointment {
 
     /**
      * Interactive method to create an appointment via console input.
-     * Guides the user through selecting doctor, weekday, and available time slot.
+     * Guides the user through selecting doctor, date, and available time slot.
      * Automatically checks availability and prevents double-booking.
      * 
      * Note: This method uses Scanner which should be closed by the caller
      * in production code. Suppressed warning for resource leak.
      * 
      * @param patient The Patient object making the appointment
-     * @return A new Appointment object with the selected details
+     * @return A new Appointment object with the selected details, or null if
+     *         the patient joined a waitlist instead
      */
     @SuppressWarnings("resource")
     public static Appointment createAppointment(Patient patient) {
@@ -113,69 +261,582 @@ class Appointment {
             doctorChoice = scanner.nextInt();
         } while (doctorChoice < 1 || doctorChoice > DOCTORS.length);
 
-        System.out.println("\nChoose a weekday:");
-        for (int i = 0; i < DAYS.length; i++) {
-            System.out.println((i + 1) + ". " + DAYS[i]);
+        List<LocalDate> dates = openDates();
+        System.out.println("\nChoose a date:");
+        for (int i = 0; i < dates.size(); i++) {
+            System.out.println((i + 1) + ". " + formatDate(dates.get(i)));
         }
-        int dayChoice;
+        int dateChoice;
         do {
-            System.out.print("Enter the number of the day (1-" + DAYS.length + "): ");
-            dayChoice = scanner.nextInt();
-        } while (dayChoice < 1 || dayChoice > DAYS.length);
+            System.out.print("Enter the number of the date (1-" + dates.size() + "): ");
+            dateChoice = scanner.nextInt();
+        } while (dateChoice < 1 || dateChoice > dates.size());
 
         int timeChoice = -1;
-        Weekday selectedDay = DAYS[dayChoice - 1];
+        LocalDate selectedDate = dates.get(dateChoice - 1);
         String selectedDoctor = DOCTORS[doctorChoice - 1];
-        while (true) {
-            System.out.println("\nChoose a time:");
-            for (int i = 0; i < TIMES.length; i++) {
-                if (isSlotFree(selectedDoctor, selectedDay, TIMES[i])) {
-                    System.out.println((i + 1) + ". " + TIMES[i]);
+        // Menu indices are the registry ordinals, so no lookups are needed here
+        int doctorOrdinal = doctorChoice - 1;
+        DatedCalendar calendar = datedCalendar();
+        try {
+            if (calendar.nextFreeTime(doctorOrdinal, selectedDate, 0) < 0) {
+                System.out.print("\nAll times are booked for " + selectedDoctor + " on " + formatDate(selectedDate) + ". Join the waitlist? (y/n): ");
+                if (scanner.next().trim().equalsIgnoreCase("y")) {
+                    List<Injury> injuries = patient.getInjuries();
+                    Injury injury = injuries.isEmpty() ? null : injuries.get(injuries.size() - 1);
+                    Appointment booked = Bookings.WAITLIST.bookOrWait(doctorOrdinal, selectedDate, patient, injury, "");
+                    if (booked == null) {
+                        System.out.println("You are on the waitlist and will get the first slot that is cancelled.");
+                    }
+                    return booked;
                 }
+                return createAppointment(patient);
             }
-            System.out.print("Enter the number of the time (1-" + TIMES.length + "): ");
-            timeChoice = scanner.nextInt() - 1;
+            while (true) {
+                System.out.println("\nChoose a time:");
+                for (int i = calendar.nextFreeTime(doctorOrdinal, selectedDate, 0); i >= 0; i = calendar.nextFreeTime(doctorOrdinal, selectedDate, i + 1)) {
+                    System.out.println((i + 1) + ". " + TIMES[i]);
+                }
+                System.out.print("Enter the number of the time (1-" + TIMES.length + "): ");
+                timeChoice = scanner.nextInt() - 1;
 
-            if (timeChoice >= 0 && timeChoice < TIMES.length && isSlotFree(selectedDoctor, selectedDay, TIMES[timeChoice])) {
-                bookSlot(selectedDoctor, selectedDay, TIMES[timeChoice]);
-                break;
-            } else {
+                Appointment booked = timeChoice >= 0 && timeChoice < TIMES.length
+                        ? calendar.tryBook(doctorOrdinal, selectedDate, timeChoice, patient, "")
+                        : null;
+                if (booked != null) {
+                    return booked;
+                }
                 System.out.println("The selected time is already booked for this doctor. Please choose another time.");
             }
+        } catch (IllegalArgumentException e) {
+            // The date left the booking horizon while the menu was open
+            System.out.println("Error booking appointment: " + e.getMessage());
+            return createAppointment(patient);
         }
+    }
+
+    /**
+     * The dates that can be booked, from today to the end of the booking horizon.
+     */
+    public static List<LocalDate> openDates() {
+        return datedCalendar().openDates();
+    }
 
-        return new Appointment(selectedDay, TIMES[timeChoice], selectedDoctor, patient);
+    /**
+     * A date as shown in the menus, e.g. "TUESDAY 2026-10-20".
+     */
+    public static String formatDate(LocalDate date) {
+        return date.getDayOfWeek() + " " + date;
     }
 
     /**
-     * Checks if a specific time slot is available for a doctor on a given weekday.
-     * Uses the static BOOKINGS registry to determine availability.
+     * Checks if a specific time slot is available for a doctor on a given date.
+     * Dates outside the booking horizon or on closed days are never free.
      * 
      * @param doctor The doctor's name
-     * @param day The weekday enum to check
+     * @param date The date to check
      * @param time The time slot string to check
      * @return true if the slot is free, false if already booked
+     * @throws IllegalArgumentException if the doctor or time is not in DOCTORS/TIMES
      */
-    public static boolean isSlotFree(String doctor, Weekday day, String time) {
-        return BOOKINGS.getOrDefault(doctor, new HashMap<>())
-                .getOrDefault(day, new HashSet<>())
-                .stream()
-                .noneMatch(t -> t.equals(time));
+    public static boolean isSlotFree(String doctor, LocalDate date, String time) {
+        return datedCalendar().isFree(DOCTOR_REGISTRY.idOf(doctor), date, time);
     }
 
     /**
-     * Books a time slot for a doctor on a specific weekday.
-     * Adds the time to the BOOKINGS registry to prevent future double-booking.
-     * Uses computeIfAbsent to automatically create nested maps/sets if needed.
+     * Same as isSlotFree(String, LocalDate, String) with the doctor's scheduling
+     * id and the index of the time in TIMES.
+     */
+    public static boolean isSlotFree(int doctorId, LocalDate date, int time) {
+        return datedCalendar().isFree(doctorId, date, TIMES[time]);
+    }
+
+    /**
+     * Books a time slot for a doctor on a specific date if it is still free.
+     * Checking and booking happen in one atomic step, so when several users
+     * race for the same slot exactly one of them gets it. The returned
+     * appointment is not yet added to the patient.
      * 
-     * @param doctor The doctor's name
-     * @param day The weekday enum to book
-     * @param time The time slot string to book
+     * @param doctorId The doctor's scheduling id
+     * @param date The date to book
+     * @param time The index of the time in TIMES
+     * @return The booked appointment, or null if the slot was already taken
+     * @throws IllegalArgumentException if the time is unknown or the date is
+     *         outside the booking horizon or on a closed day
+     */
+    public static Appointment tryBookSlot(int doctorId, LocalDate date, int time, Patient patient, String athleteDescription) {
+        return datedCalendar().tryBook(doctorId, date, time, patient, athleteDescription);
+    }
+
+    /**
+     * Same as tryBookSlot(int, LocalDate, int, ...) with the doctor's name and
+     * the time's label.
+     * @throws IllegalArgumentException if the doctor or time is not in DOCTORS/TIMES
+     */
+    public static Appointment tryBookSlot(String doctor, LocalDate date, String time, Patient patient, String athleteDescription) {
+        return datedCalendar().tryBook(DOCTOR_REGISTRY.idOf(doctor), date, time, patient, athleteDescription);
+    }
+
+    /**
+     * Lists a doctor's booked appointments with from <= date < to, in date
+     * and time order.
+     */
+    public static List<Appointment> bookingsFor(int doctorId, LocalDate from, LocalDate to) {
+        return datedCalendar().bookingsFor(doctorId, from, to);
+    }
+
+    /**
+     * Lists every doctor's booked appointments on one date.
+     */
+    public static List<Appointment> bookingsOn(LocalDate date) {
+        return datedCalendar().bookingsOn(date);
+    }
+
+    /**
+     * A bookable (doctor, date, time) combination returned by the free-slot queries.
+     */
+    public static class FreeSlot {
+        private final String doctorName;
+        private final LocalDate date;
+        private final String time;
+
+        FreeSlot(String doctorName, LocalDate date, String time) {
+            this.doctorName = doctorName;
+            this.date = date;
+            this.time = time;
+        }
+
+        public String getDoctorName() {
+            return doctorName;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public Weekday getWeekday() {
+            return Weekday.fromDayOfWeek(date.getDayOfWeek());
+        }
+
+        public String getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return doctorName + " - " + formatDate(date) + " at " + time;
+        }
+    }
+
+    /**
+     * Finds the earliest free slot in the booking horizon with any doctor.
+     * @return The first free slot (first free doctor in DOCTORS order), or null if every slot is booked
+     */
+    public static FreeSlot findEarliestFreeSlot() {
+        DatedCalendar calendar = datedCalendar();
+        for (LocalDate date : calendar.openDates()) {
+            for (int time = calendar.nextOpenTime(date, 0); time >= 0; time = calendar.nextOpenTime(date, time + 1)) {
+                int doctor = calendar.nextFreeDoctor(date, time, 0);
+                if (doctor >= 0) {
+                    return new FreeSlot(DOCTORS[doctor], date, TIMES[time]);
+                }
+                // Booked by another thread since the index was read
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists every free (doctor, time) on a date, in time order.
+     */
+    public static List<FreeSlot> findFreeSlots(LocalDate date) {
+        DatedCalendar calendar = datedCalendar();
+        List<FreeSlot> free = new ArrayList<>();
+        for (int time = calendar.nextOpenTime(date, 0); time >= 0; time = calendar.nextOpenTime(date, time + 1)) {
+            for (int doctor = calendar.nextFreeDoctor(date, time, 0); doctor >= 0; doctor = calendar.nextFreeDoctor(date, time, doctor + 1)) {
+                free.add(new FreeSlot(DOCTORS[doctor], date, TIMES[time]));
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Lists every free slot of one doctor across the booking horizon, in date
+     * and time order.
+     * @throws IllegalArgumentException if the doctor is not in DOCTORS
+     */
+    public static List<FreeSlot> findFreeSlots(String doctor) {
+        int doctorOrdinal = DOCTOR_REGISTRY.idOf(doctor);
+        DatedCalendar calendar = datedCalendar();
+        List<FreeSlot> free = new ArrayList<>();
+        for (LocalDate date : calendar.openDates()) {
+            for (int time = calendar.nextFreeTime(doctorOrdinal, date, 0); time >= 0; time = calendar.nextFreeTime(doctorOrdinal, date, time + 1)) {
+                free.add(new FreeSlot(doctor, date, TIMES[time]));
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Books the earliest free time with a doctor on a date, or puts the
+     * patient on that doctor's waitlist for the date if every time is taken.
+     * Patients with a non-movable injury are promoted ahead of the others.
+     * 
+     * @param injury The injury the visit is for (may be null)
+     * @return The booked appointment, or null if the patient was waitlisted
+     * @throws IllegalArgumentException if the doctor is not in DOCTORS or the
+     *         date cannot be booked
+     */
+    public static Appointment bookOrWait(String doctor, LocalDate date, Patient patient, Injury injury, String athleteDescription) {
+        return bookOrWait(DOCTOR_REGISTRY.idOf(doctor), date, patient, injury, athleteDescription);
+    }
+
+    /**
+     * Same as bookOrWait(String, ...) with the doctor's scheduling id.
+     */
+    public static Appointment bookOrWait(int doctorId, LocalDate date, Patient patient, Injury injury, String athleteDescription) {
+        datedCalendar();
+        return Bookings.WAITLIST.bookOrWait(doctorId, date, patient, injury, athleteDescription);
+    }
+
+    /**
+     * Cancels an appointment: removes it from its patient's reservations and
+     * gives the slot to the first patient on the waitlist, if any, whose
+     * reservations then gain the returned appointment.
+     * Both patients are looked up with the patient lookup (see
+     * setPatientLookup()), so the accounts are changed rather than the
+     * copies the appointments were made with.
+     * An appointment that is no longer one of its patient's reservations, or
+     * was already cancelled, no longer holds its slot, so cancelling it again
+     * changes nothing. Undated reservations from before the calendar used
+     * dates hold no slot and are only removed from the patient.
+     * 
+     * @return The promoted patient's appointment, or null if the slot was
+     *         freed or this appointment no longer held it
+     * @throws IllegalArgumentException if the doctor or time is not in DOCTORS/TIMES
+     */
+    public static Appointment cancelAppointment(Appointment appointment) {
+        int doctor = appointment.getDoctorId();
+        if (doctor < 0) {
+            throw new IllegalArgumentException("Unknown doctor: " + appointment.getDoctorName());
+        }
+        Bookings.REGISTRY.timeOrdinal(appointment.getTime());
+        Patient owner = livePatient(appointment.getPatient());
+        if (owner != null && !owner.cancelReservation(appointment)) {
+            return null;
+        }
+        if (appointment.getDate() == null) {
+            appointment.markCancelled();
+            return null;
+        }
+        datedCalendar();
+        Appointment promoted = Bookings.WAITLIST.cancel(appointment, doctor);
+        recordPromotion(promoted);
+        return promoted;
+    }
+
+    /**
+     * Sets how patients are found by username, e.g. AccountManager::getUser.
+     * Cancellations and waitlist promotions are recorded on the patient it
+     * returns; without one, or if it returns null, they are recorded on the
+     * Patient the appointment was made with.
+     */
+    public static void setPatientLookup(Function<String, Patient> lookup) {
+        patientLookup = lookup;
+    }
+
+    private static Patient livePatient(Patient patient) {
+        if (patient == null) {
+            return null;
+        }
+        Patient live = patientLookup.apply(patient.getUsername());
+        return live != null ? live : patient;
+    }
+
+    /**
+     * Adds an appointment promoted from a waitlist to its patient's reservations.
+     */
+    private static void recordPromotion(Appointment promoted) {
+        Patient patient = promoted != null ? livePatient(promoted.getPatient()) : null;
+        if (patient != null) {
+            patient.addReservation(promoted);
+        }
+    }
+
+    /**
+     * Reserves a series of weekly follow-ups (e.g. every Tuesday for 6 weeks
+     * of ACL rehab) with the same doctor and time, all or nothing. The
+     * returned appointments are booked but not yet added to the patient.
+     * 
+     * @param doctorId The doctor's scheduling id
+     * @param firstDate Date of the first appointment
+     * @param weeks Number of weekly appointments
+     * @return The appointments in date order, or null if any week was already taken
+     * @throws IllegalArgumentException if a date is in the past, too far ahead or on a closed day
+     */
+    public static List<Appointment> reserveSeries(int doctorId, LocalDate firstDate, String time, int weeks, Patient patient, String athleteDescription) {
+        List<Appointment> series = datedCalendar().tryBookSeries(doctorId, firstDate, time, weeks, patient, athleteDescription);
+        if (series == null) {
+            // The weeks booked before the taken one were freed again; anyone
+            // who joined a waitlist while they were taken gets them now
+            for (int week = 0; week < weeks; week++) {
+                for (Appointment promoted : Bookings.WAITLIST.fill(doctorId, firstDate.plusWeeks(week))) {
+                    recordPromotion(promoted);
+                }
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Books a variable-length appointment in a doctor's IntervalSchedule.
+     * Each fixed TIMES slot covers SLOT_MINUTES of the same schedule, and the
+     * booking holds every fixed slot it overlaps on the next date of that
+     * weekday (today included): it fails if one of them is booked, and while
+     * it lasts the fixed booking paths see those slots as taken. Several
+     * interval bookings can share one fixed slot as long as they do not
+     * overlap each other. Interval bookings are kept in memory only and
+     * expire once the day they start on has passed.
+     *
+     * @param doctorId The doctor's scheduling id
+     * @param start Minute of the week (see IntervalSchedule.minuteOfWeek())
+     * @return The booking, or null if it overlaps another booking or a booked fixed slot
+     * @throws IllegalArgumentException if the interval is invalid or outside the doctor's working hours
+     */
+    public static IntervalSchedule.Booking bookInterval(int doctorId, int start, int durationMinutes, Patient patient, String description) {
+        IntervalSchedule schedule = DOCTOR_REGISTRY.scheduleOf(doctorId);
+        LocalDate today = datedCalendar().getToday();
+        LocalDate date = today.with(TemporalAdjusters.nextOrSame(DayOfWeek.of(start / IntervalSchedule.MINUTES_PER_DAY + 1)));
+        IntervalHold hold = new IntervalHold(doctorId, today, date, fixedSlotsOverlapping(start, start + durationMinutes));
+        int[] bits = new int[hold.slots.length];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = hold.bit(i);
+        }
+        synchronized (schedule) {
+            IntervalSchedule.Booking booking = schedule.tryBook(start, durationMinutes, patient, description);
+            if (booking == null) {
+                return null;
+            }
+            if (!Bookings.INTERVAL_HOLDS.acquireAll(bits)) {
+                schedule.cancel(booking);
+                return null;
+            }
+            Bookings.INTERVAL_BOOKINGS.put(booking, hold);
+            return booking;
+        }
+    }
+
+    /**
+     * Cancels a booking made with bookInterval() and releases the fixed
+     * slots it held. A slot that no other interval booking holds goes to the
+     * first patient waiting for its doctor and date, if any.
+     * @return true if the booking was still in the doctor's schedule
+     */
+    public static boolean cancelInterval(int doctorId, IntervalSchedule.Booking booking) {
+        IntervalSchedule schedule = DOCTOR_REGISTRY.scheduleOf(doctorId);
+        synchronized (schedule) {
+            IntervalHold hold = Bookings.INTERVAL_BOOKINGS.remove(booking);
+            if (!schedule.cancel(booking)) {
+                return false;
+            }
+            if (hold != null) {
+                hold.release();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Finds the earliest start at or after fromMinute where bookInterval()
+     * can fit an appointment of the given length: inside working hours, clear
+     * of other interval bookings and of fixed slots booked on the fixed paths.
+     * The answer may be stale by the time it is used.
+     * @return The start minute, or -1 if nothing fits before the end of the week
+     */
+    public static int findIntervalFit(int doctorId, int durationMinutes, int fromMinute) {
+        IntervalSchedule schedule = DOCTOR_REGISTRY.scheduleOf(doctorId);
+        DatedCalendar calendar = datedCalendar();
+        LocalDate today = calendar.getToday();
+        while (true) {
+            int start = schedule.findFirstFit(durationMinutes, fromMinute);
+            if (start < 0) {
+                return -1;
+            }
+            int blockedUntil = -1;
+            for (Weekday day : Weekday.values()) {
+                LocalDate date = nextDate(today, day);
+                for (int time = 0; time < TIMES.length; time++) {
+                    int slotStart = fixedSlotStart(day, time);
+                    int slot = calendar.bitIndex(doctorId, date, time);
+                    if (overlaps(slotStart, start, start + durationMinutes) && !Bookings.REGISTRY.isFree(slot) && !Bookings.INTERVAL_HOLDS.isHeld(slot)) {
+                        blockedUntil = Math.max(blockedUntil, slotStart + SLOT_MINUTES);
+                    }
+                }
+            }
+            if (blockedUntil < 0) {
+                return start;
+            }
+            fromMinute = blockedUntil;
+        }
+    }
+
+    /**
+     * The weekly fixed slots that overlap [start, end), numbered weekday
+     * ordinal * TIMES.length + time.
+     */
+    private static int[] fixedSlotsOverlapping(int start, int end) {
+        int[] slots = new int[Weekday.values().length * TIMES.length];
+        int n = 0;
+        for (Weekday day : Weekday.values()) {
+            for (int time = 0; time < TIMES.length; time++) {
+                if (overlaps(fixedSlotStart(day, time), start, end)) {
+                    slots[n++] = day.ordinal() * TIMES.length + time;
+                }
+            }
+        }
+        return Arrays.copyOf(slots, n);
+    }
+
+    /**
+     * The first date on or after from that falls on the weekday.
+     */
+    private static LocalDate nextDate(LocalDate from, Weekday day) {
+        return from.with(TemporalAdjusters.nextOrSame(day.toDayOfWeek()));
+    }
+
+    private static boolean overlaps(int slotStart, int start, int end) {
+        return slotStart < end && start < slotStart + SLOT_MINUTES;
+    }
+
+    /**
+     * Minute of the week at which a fixed slot starts.
+     */
+    static int fixedSlotStart(Weekday day, int time) {
+        return IntervalSchedule.minuteOfWeek(day.toDayOfWeek(), TIME_MINUTES[time] / 60, TIME_MINUTES[time] % 60);
+    }
+
+    /**
+     * The dated calendar, with its horizon first moved to start today so
+     * bookings on past days expire and release their slots.
+     */
+    private static DatedCalendar datedCalendar() {
+        LocalDate today = LocalDate.now();
+        if (today.isAfter(Bookings.CALENDAR.getToday())) {
+            advanceCalendar(today);
+        }
+        return Bookings.CALENDAR;
+    }
+
+    /**
+     * Moves the calendar to start today and expires what belonged to the
+     * days that passed: their bookings, waitlists and interval bookings.
+     */
+    private static synchronized void advanceCalendar(LocalDate today) {
+        if (!today.isAfter(Bookings.CALENDAR.getToday())) {
+            return;
+        }
+        Bookings.CALENDAR.advanceTo(today);
+        Bookings.WAITLIST.dropBefore(today);
+        for (Map.Entry<IntervalSchedule.Booking, IntervalHold> entry : Bookings.INTERVAL_BOOKINGS.entrySet()) {
+            IntervalHold hold = entry.getValue();
+            if (!hold.date.isBefore(today)) {
+                continue;
+            }
+            IntervalSchedule schedule = DOCTOR_REGISTRY.scheduleOf(hold.doctorId);
+            synchronized (schedule) {
+                if (!Bookings.INTERVAL_BOOKINGS.remove(entry.getKey(), hold)) {
+                    continue;
+                }
+                schedule.cancel(entry.getKey());
+                hold.release();
+            }
+        }
+    }
+
+    /**
+     * Books a batch of requests against the shared calendar in one pass.
+     * The returned appointments are booked but not yet added to the patients.
+     * @see BatchBookingEngine
+     */
+    public static BatchBookingEngine.Result bookBatch(List<BatchBookingEngine.Request> requests) {
+        return new BatchBookingEngine(datedCalendar(), DOCTOR_REGISTRY, TIMES.length).book(requests);
+    }
+
+    /**
+     * True if the calendar is new or was not closed cleanly. Only then does
+     * it need verifyCalendar(); otherwise the calendar file and its journal
+     * are read back as they are.
+     */
+    public static boolean calendarNeedsRecovery() {
+        return Bookings.REGISTRY.needsRecovery();
+    }
+
+    /**
+     * Recovery after a crash or on a new calendar file: rebuilds the calendar
+     * from the patients' persisted reservations. Run it before taking
+     * bookings, and only when calendarNeedsRecovery() is true.
+     * - Dated reservations inside the booking horizon are booked again and
+     *   the calendar's journal is rewritten to match.
+     * - Every other slot is freed. Slots booked without a saved reservation
+     *   come from a crash between booking a slot and saving the reservation.
+     * - Reservations from before the calendar used dates have no date and
+     *   hold no slot; they are skipped.
+     *
+     * @param reservations Every persisted reservation (AccountManager.loadAllReservations())
+     * @return A one-line summary of what was repaired
      */
-    public static void bookSlot(String doctor, Weekday day, String time) {
-        BOOKINGS.computeIfAbsent(doctor, d -> new HashMap<>())
-                .computeIfAbsent(day, w -> new HashSet<>())
-                .add(time);
+    public static String verifyCalendar(List<Appointment> reservations) {
+        LocalDate today = LocalDate.now();
+        List<Appointment> dated = new ArrayList<>();
+        int undated = 0;
+        int unknown = 0;
+        for (Appointment reservation : reservations) {
+            if (reservation.getDate() == null) {
+                undated++;
+                continue;
+            }
+            try {
+                if (reservation.getDoctorId() < 0) {
+                    throw new IllegalArgumentException("Unknown doctor: " + reservation.getDoctorName());
+                }
+                Bookings.REGISTRY.timeOrdinal(reservation.getTime());
+                dated.add(reservation);
+            } catch (IllegalArgumentException e) {
+                unknown++;
+            }
+        }
+        int conflicts = Bookings.CALENDAR.restore(dated, today);
+        int restored = 0;
+        for (int doctor = 0; doctor < DOCTOR_REGISTRY.size(); doctor++) {
+            restored += Bookings.CALENDAR.bookingsFor(doctor, today, Bookings.CALENDAR.getHorizonEnd()).size();
+        }
+        return "Calendar rebuilt from " + reservations.size() + " reservations: " + restored + " restored, "
+                + conflicts + " double-booked, " + unknown + " for unknown doctors or times, "
+                + undated + " without a date skipped";
+    }
+
+    /**
+     * Flushes the calendar file and marks it cleanly closed. Call on exit.
+     */
+    public static void closeCalendar() {
+        Bookings.REGISTRY.close();
+    }
+
+    /**
+     * Marks this appointment cancelled.
+     * @return true if this call cancelled it, false if it was already cancelled
+     */
+    boolean markCancelled() {
+        return cancelled.compareAndSet(false, true);
+    }
+
+    /**
+     * True if the other appointment is for the same doctor, date (or weekday,
+     * for undated reservations) and time.
+     */
+    boolean isSameSlot(Appointment other) {
+        return doctorName.equals(other.doctorName) && time.equals(other.time)
+                && weekday == other.weekday && Objects.equals(date, other.date);
     }
 
     /**
@@ -186,6 +847,25 @@ class Appointment {
         return weekday;
     }
 
+    /**
+     * Retrieves the calendar date of this appointment.
+     * @return The date, or null for a reservation saved before the calendar used dates
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Retrieves the scheduling id of this appointment's doctor.
+     * @return The id in DOCTOR_REGISTRY, or -1 if the doctor is not registered
+     */
+    public int getDoctorId() {
+        if (doctorId < 0) {
+            doctorId = DOCTOR_REGISTRY.findId(doctorName);
+        }
+        return doctorId;
+    }
+
     /**
      * Retrieves the doctor's name for this appointment.
      * @return The doctor's name string
@@ -210,6 +890,14 @@ class Appointment {
         return patient;
     }
 
+    /**
+     * Short description for lists, e.g. "Dr. X - TUESDAY 2026-10-20 at 6:30 PM".
+     */
+    @Override
+    public String toString() {
+        return doctorName + " - " + (date != null ? formatDate(date) : weekday.toString()) + " at " + time;
+    }
+
     /**
      * Displays appointment details to the console.
      * Shows doctor name, weekday, time, and patient name.
@@ -218,7 +906,7 @@ class Appointment {
     public void displayAppointment() {
         System.out.println("\nAppointment Details:");
         System.out.println("Doctor: " + doctorName);
-        System.out.println("Day: " + weekday);
+        System.out.println("Day: " + (date != null ? weekday + " " + date : weekday));
         System.out.println("Time: " + time);
         System.out.println("Patient: " + (patient != null ? patient.getName() : "N/A"));
     }
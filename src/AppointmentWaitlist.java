@@ -0,0 +1,208 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waitlists for fully booked (doctor, date) pairs, plus cancellation that
+ * hands the freed slot straight to the head of the waitlist.
+ *
+ * Each pair has its own priority queue ordered so that patients whose
+ * injury is not movable come first, then by arrival. Joining or leaving
+ * is O(log n). A cancellation with people waiting never frees the slot in
+ * the calendar: it is transferred to the promoted patient, so a concurrent
+ * tryBook() cannot slip in between.
+ *
+ * Rationale: A per-pair lock keeps "no free time, so wait" and "slot freed,
+ * so promote" from interleaving and stranding a waiting patient next to a
+ * free slot. Plain bookings still go through the lock-free tryBook() and
+ * only contend here on pairs that are full.
+ *
+ * Every other way a slot of a pair can be given up goes through here too:
+ * handOver() for slots released by interval holds, fill() for slots a
+ * rolled-back series took for a moment. Days that have passed are dropped
+ * with their waitlists, so their slots need no promotion.
+ *
+ * A cancellation only gives up a slot its appointment still holds: an
+ * appointment that was already cancelled, e.g. a stale copy cancelled a
+ * second time after the slot went to someone else, changes nothing.
+ */
+class AppointmentWaitlist {
+    private final DatedCalendar calendar;
+    private final int doctorCount;
+    /** Queues by epochDay * doctorCount + doctor; created on first use */
+    private final ConcurrentMap<Long, PriorityQueue<Entry>> queues = new ConcurrentHashMap<>();
+    private final AtomicLong arrivals = new AtomicLong();
+
+    private static class Entry {
+        final Patient patient;
+        final boolean urgent;
+        final long arrival;
+        final String athleteDescription;
+
+        Entry(Patient patient, boolean urgent, long arrival, String athleteDescription) {
+            this.patient = patient;
+            this.urgent = urgent;
+            this.arrival = arrival;
+            this.athleteDescription = athleteDescription;
+        }
+    }
+
+    /** Non-movable injuries first, then first come first served */
+    private static final Comparator<Entry> PRIORITY = Comparator
+            .comparing((Entry e) -> !e.urgent)
+            .thenComparingLong(e -> e.arrival);
+
+    /**
+     * @param calendar The calendar the waitlisted slots belong to
+     * @param doctors The doctors of the calendar, by scheduling id
+     */
+    public AppointmentWaitlist(DatedCalendar calendar, DoctorRegistry doctors) {
+        this.calendar = calendar;
+        this.doctorCount = doctors.size();
+    }
+
+    /**
+     * Books the earliest free time with the doctor on that date, or joins the
+     * waitlist if every time is taken.
+     * @param injury The injury the visit is for; non-movable injuries wait at the front (may be null)
+     * @return The booked appointment, or null if the patient was waitlisted
+     * @throws IllegalArgumentException if the date cannot be booked
+     */
+    public Appointment bookOrWait(int doctor, LocalDate date, Patient patient, Injury injury, String athleteDescription) {
+        if (!calendar.isBookable(date)) {
+            throw new IllegalArgumentException("Date " + date + " cannot be booked");
+        }
+        PriorityQueue<Entry> queue = queueFor(doctor, date);
+        synchronized (queue) {
+            for (int time = calendar.nextFreeTime(doctor, date, 0); time >= 0; time = calendar.nextFreeTime(doctor, date, time + 1)) {
+                Appointment appointment = calendar.tryBook(doctor, date, time, patient, athleteDescription);
+                if (appointment != null) {
+                    return appointment;
+                }
+            }
+            boolean urgent = injury != null && !injury.isMovable();
+            queue.add(new Entry(patient, urgent, arrivals.incrementAndGet(), athleteDescription));
+            return null;
+        }
+    }
+
+    /**
+     * Cancels a booked appointment. If anyone is waiting for that doctor and
+     * date, the slot passes to the head of the waitlist; otherwise it is
+     * freed. Nothing happens if the appointment was already cancelled or no
+     * longer holds its slot.
+     * @param doctor The appointment's doctor, by scheduling id
+     * @return The promoted patient's new appointment, or null if the slot was
+     *         freed or not held by this appointment
+     */
+    public Appointment cancel(Appointment appointment, int doctor) {
+        PriorityQueue<Entry> queue = queueFor(doctor, appointment.getDate());
+        synchronized (queue) {
+            if (!appointment.markCancelled()) {
+                return null;
+            }
+            Entry head = queue.peek();
+            if (head == null) {
+                calendar.cancel(doctor, appointment);
+                return null;
+            }
+            Appointment promoted = calendar.transfer(doctor, appointment, head.patient, head.athleteDescription);
+            if (promoted != null) {
+                queue.poll();
+            }
+            return promoted;
+        }
+    }
+
+    /**
+     * Hands a slot that is booked but held by no appointment, e.g. one whose
+     * last interval hold was just released, to the head of the waitlist for
+     * its doctor and date, or frees it if nobody is waiting. Like cancel(),
+     * the slot is never free in between.
+     * @param time The time's index in the calendar's times
+     * @return The promoted patient's new appointment, or null if the slot was freed
+     */
+    public Appointment handOver(int doctor, LocalDate date, int time) {
+        if (!calendar.isBookable(date)) {
+            // Passed; the slot was freed with its day
+            return null;
+        }
+        PriorityQueue<Entry> queue = queueFor(doctor, date);
+        synchronized (queue) {
+            Entry head = queue.peek();
+            Appointment promoted = head != null ? calendar.assign(doctor, date, time, head.patient, head.athleteDescription) : null;
+            if (promoted == null) {
+                calendar.releaseSlot(doctor, date, time);
+                return null;
+            }
+            queue.poll();
+            return promoted;
+        }
+    }
+
+    /**
+     * Books free times with the doctor on the date for waiting patients, in
+     * waitlist order, for slots that were freed without passing through
+     * cancel() or handOver(), e.g. by a series that rolled back.
+     * @return The promoted patients' new appointments
+     */
+    public List<Appointment> fill(int doctor, LocalDate date) {
+        List<Appointment> promoted = new ArrayList<>();
+        if (!calendar.isBookable(date)) {
+            return promoted;
+        }
+        PriorityQueue<Entry> queue = queueFor(doctor, date);
+        synchronized (queue) {
+            int time = calendar.nextFreeTime(doctor, date, 0);
+            while (!queue.isEmpty() && time >= 0) {
+                Entry head = queue.peek();
+                Appointment appointment = calendar.tryBook(doctor, date, time, head.patient, head.athleteDescription);
+                if (appointment != null) {
+                    queue.poll();
+                    promoted.add(appointment);
+                }
+                time = calendar.nextFreeTime(doctor, date, time + 1);
+            }
+        }
+        return promoted;
+    }
+
+    /**
+     * Removes a patient from the waitlist for a doctor and date.
+     * @return true if the patient was waiting
+     */
+    public boolean leave(int doctor, LocalDate date, Patient patient) {
+        PriorityQueue<Entry> queue = queueFor(doctor, date);
+        synchronized (queue) {
+            return queue.removeIf(e -> e.patient == patient);
+        }
+    }
+
+    /**
+     * Number of patients waiting for a doctor on a date.
+     */
+    public int size(int doctor, LocalDate date) {
+        PriorityQueue<Entry> queue = queueFor(doctor, date);
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Drops the waitlists of dates before the given one; those days have
+     * passed and their slots will not be freed again.
+     */
+    public void dropBefore(LocalDate date) {
+        long first = date.toEpochDay() * doctorCount;
+        queues.keySet().removeIf(key -> key < first);
+    }
+
+    private PriorityQueue<Entry> queueFor(int doctor, LocalDate date) {
+        return queues.computeIfAbsent(date.toEpochDay() * doctorCount + doctor, key -> new PriorityQueue<>(PRIORITY));
+    }
+}
@@ -0,0 +1,248 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hashes and verifies patient passwords with salted PBKDF2.
+ * Hashing and verification both run on one bounded worker pool, so that a
+ * burst of signups, logins and legacy password upgrades uses at most a
+ * fixed number of threads and queue slots.
+ *
+ * Stored format: "pbkdf2$iterations$salt$hash" (salt and hash in Base64),
+ * which contains no commas and fits in the accounts.txt password field.
+ * Anything else is treated as a legacy plain-text password.
+ *
+ * Rationale: A deliberately slow hash makes a leaked accounts file costly
+ * to attack, but that cost must not be paid on an unbounded number of
+ * threads. Excess login attempts are rejected instead of queued forever.
+ */
+class AuthenticationService {
+    /** Default PBKDF2 iteration count; override with -Dauth.iterations */
+    public static final int DEFAULT_ITERATIONS = 65_536;
+    private static final String PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int QUEUE_CAPACITY = 64;
+    /** Number of recent verification latencies kept for the p99 figure */
+    private static final int LATENCY_WINDOW = 4096;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadPoolExecutor workers;
+
+    /** Hash verified against for unknown usernames, created on first use */
+    private volatile String dummyHash;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private long verifications;
+    private long firstStart;
+    private long lastEnd;
+
+    /**
+     * Creates a service with the configured (or default) cost and one
+     * worker per available processor.
+     */
+    public AuthenticationService() {
+        this(Integer.getInteger("auth.iterations", DEFAULT_ITERATIONS), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param iterations PBKDF2 iteration count used for new hashes
+     * @param workerCount Maximum number of concurrent verifications
+     */
+    public AuthenticationService(int iterations, int workerCount) {
+        if (iterations < 1 || workerCount < 1) {
+            throw new IllegalArgumentException("Iterations and worker count must be positive");
+        }
+        this.iterations = iterations;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread thread = new Thread(r, "auth-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Hashes a password with a fresh random salt at the configured cost, on
+     * the worker pool, blocking the caller until the hash is ready.
+     * @return The encoded hash to store in place of the password
+     * @throws RejectedExecutionException if the pool is saturated
+     */
+    public String hash(String password) {
+        Future<String> result;
+        try {
+            result = workers.submit(() -> encode(password));
+        } catch (RejectedExecutionException e) {
+            throw new RejectedExecutionException("Too many signups and logins in progress. Please try again.", e);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error hashing password: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Hashes on the calling thread; only for work already on the pool or done once.
+     */
+    private String encode(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Checks whether a stored value is a plain-text password from before hashing.
+     */
+    public static boolean isLegacy(String stored) {
+        return stored == null || !stored.startsWith(PREFIX);
+    }
+
+    /**
+     * Verifies a password against its stored value on the worker pool,
+     * blocking the caller until the result is known.
+     * @return true if the password matches; false if it does not, or if the
+     *         pool is saturated and the attempt was rejected
+     */
+    public boolean verify(String stored, String password) {
+        long start = System.nanoTime();
+        Future<Boolean> result;
+        try {
+            result = workers.submit(() -> matches(stored, password));
+        } catch (RejectedExecutionException e) {
+            System.out.println("Login rejected: too many login attempts in progress.");
+            return false;
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            System.out.println("Error verifying password: " + e.getCause().getMessage());
+            return false;
+        } finally {
+            record(start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Spends the same time as verify() on a real account and returns false.
+     * Used when the username does not exist, so that login response time
+     * does not reveal which usernames have accounts.
+     */
+    public boolean verifyUnknownUser(String password) {
+        String dummy = dummyHash;
+        if (dummy == null) {
+            synchronized (this) {
+                if (dummyHash == null) {
+                    // Computed once per process, so it does not need the pool
+                    dummyHash = encode("");
+                }
+                dummy = dummyHash;
+            }
+        }
+        verify(dummy, password == null ? "" : password);
+        return false;
+    }
+
+    /**
+     * Compares in constant time, against either a PBKDF2 hash or a legacy plain-text value.
+     */
+    private static boolean matches(String stored, String password) {
+        if (stored == null || password == null) {
+            return false;
+        }
+        if (isLegacy(stored)) {
+            return MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] salt = decoder.decode(parts[2]);
+        byte[] expected = decoder.decode(parts[3]);
+        return MessageDigest.isEqual(expected, pbkdf2(password, salt, Integer.parseInt(parts[1])));
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private synchronized void record(long start, long end) {
+        if (verifications == 0) {
+            firstStart = start;
+        }
+        latencies[(int) (verifications % LATENCY_WINDOW)] = end - start;
+        verifications++;
+        lastEnd = Math.max(lastEnd, end);
+    }
+
+    /**
+     * Summarizes login throughput since the first verification and the p99
+     * latency over the most recent verifications, at the configured cost.
+     */
+    public synchronized String describeStats() {
+        if (verifications == 0) {
+            return "No logins verified yet (" + iterations + " iterations)";
+        }
+        int window = (int) Math.min(verifications, LATENCY_WINDOW);
+        long[] sorted = Arrays.copyOf(latencies, window);
+        Arrays.sort(sorted);
+        long p99 = sorted[Math.min(window - 1, (int) Math.ceil(window * 0.99) - 1)];
+        double seconds = Math.max(1, lastEnd - firstStart) / 1e9;
+        return String.format("%d logins, %.1f logins/s, p99 %.2f ms (%d iterations, %d workers)",
+                verifications, verifications / seconds, p99 / 1e6, iterations, workers.getMaximumPoolSize());
+    }
+
+    /**
+     * Measures login throughput and p99 latency at the configured cost.
+     * Usage: java -Dauth.iterations=N AuthenticationService [logins] [clientThreads]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int logins = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        AuthenticationService service = new AuthenticationService();
+        String stored = service.hash("secret");
+        Thread[] threads = new Thread[clients];
+        for (int t = 0; t < clients; t++) {
+            int share = logins / clients + (t < logins % clients ? 1 : 0);
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < share; i++) {
+                    service.verify(stored, "secret");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.println(service.describeStats());
+    }
+}
@@ -0,0 +1,171 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures BatchBookingEngine throughput on batches of requests, next to a
+ * plain loop that tests every preferred slot with isFree() and books the
+ * first free one, i.e. the same placement without the free-slot index.
+ *
+ * Every batch starts from an empty in-memory calendar (no journal).
+ * Requests are a mix like a post-tournament clinic day: a third name two
+ * doctors out of a popular few, a third name two of the first dates, and
+ * the rest take any doctor on any date. Because the popular slots run
+ * out, the later requests fall back through their preferences.
+ * The first batches are untimed warm-up; the reported figures are
+ * requests resolved per second (median and best of the timed batches).
+ * Usage: java BatchBookingBenchmark [requests] [batches] [doctors] [timesPerDay]
+ */
+class BatchBookingBenchmark {
+    private static final int HORIZON_WEEKS = 12;
+    private static final int WARM_UP = 3;
+    /** Doctors most requests ask for by name */
+    private static final int POPULAR_DOCTORS = 20;
+
+    public static void main(String[] args) {
+        int requestCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int batches = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int doctorCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int timeCount = args.length > 3 ? Integer.parseInt(args[3]) : 96;
+
+        String[] times = new String[timeCount];
+        for (int i = 0; i < timeCount; i++) {
+            times[i] = String.format("%d:%02d", i / 4, i % 4 * 15);
+        }
+        List<Doctor> staff = new ArrayList<>();
+        for (int i = 0; i < doctorCount; i++) {
+            staff.add(new Doctor("Dr. Doctor " + i, 40, true, "01234567890", "Clinic", "Sports Medicine"));
+        }
+        DoctorRegistry doctors = new DoctorRegistry(staff);
+        LocalDate today = LocalDate.now();
+        List<BatchBookingEngine.Request> requests = requests(requestCount, doctors,
+                newCalendar(doctors, times, today).openDates(), new Random(42));
+
+        double[] engineRates = new double[batches];
+        double[] scanRates = new double[batches];
+        int placed = 0;
+        int scanPlaced = 0;
+        int doubleBooked = 0;
+        for (int batch = -WARM_UP; batch < batches; batch++) {
+            DatedCalendar calendar = newCalendar(doctors, times, today);
+            BatchBookingEngine.Result result = new BatchBookingEngine(calendar, doctors, timeCount).book(requests);
+            placed = result.getAssignments().size();
+            doubleBooked = Math.max(doubleBooked, doubleBooked(result.getAssignments()));
+
+            DatedCalendar scanCalendar = newCalendar(doctors, times, today);
+            long start = System.nanoTime();
+            scanPlaced = scan(scanCalendar, doctors, times, requests);
+            double scanRate = requests.size() / Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+            if (batch >= 0) {
+                engineRates[batch] = result.getRequestsPerSecond();
+                scanRates[batch] = scanRate;
+            }
+        }
+
+        System.out.printf("%-8s %14s %14s %10s   (%d requests per batch, %d batches, %d doctors, %d times/day, %d dates)%n",
+                "path", "median req/s", "best req/s", "placed", requestCount, batches, doctorCount, timeCount,
+                DatedCalendar.dayCount(HORIZON_WEEKS));
+        System.out.println(line("engine", engineRates, placed));
+        System.out.println(line("scan", scanRates, scanPlaced));
+
+        boolean passed = placed == scanPlaced && doubleBooked == 0;
+        if (!passed) {
+            System.out.println("FAILED: engine placed " + placed + ", scan placed " + scanPlaced
+                    + ", " + doubleBooked + " slots assigned twice");
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static DatedCalendar newCalendar(DoctorRegistry doctors, String[] times, LocalDate today) {
+        SlotRegistry registry = new SlotRegistry(doctors, DatedCalendar.dayCount(HORIZON_WEEKS), times);
+        return new DatedCalendar(doctors, registry, times, today, null);
+    }
+
+    private static List<BatchBookingEngine.Request> requests(int count, DoctorRegistry doctors, List<LocalDate> dates, Random random) {
+        List<BatchBookingEngine.Request> requests = new ArrayList<>(count);
+        int popular = Math.min(POPULAR_DOCTORS, doctors.size());
+        for (int i = 0; i < count; i++) {
+            Patient patient = new Patient("player" + i, "secret");
+            List<String> preferredDoctors = List.of();
+            List<LocalDate> preferredDates = List.of();
+            switch (i % 3) {
+                case 0:
+                    preferredDoctors = List.of(doctors.nameOf(random.nextInt(popular)), doctors.nameOf(random.nextInt(popular)));
+                    break;
+                case 1:
+                    preferredDates = List.of(dates.get(random.nextInt(3)), dates.get(3 + random.nextInt(3)));
+                    break;
+                default:
+                    break;
+            }
+            requests.add(new BatchBookingEngine.Request(patient, preferredDoctors, preferredDates, "Match injury"));
+        }
+        return requests;
+    }
+
+    /**
+     * Places the requests in the same order and by the same preferences as
+     * BatchBookingEngine, testing every candidate slot with isFree().
+     * @return The number of requests placed
+     */
+    private static int scan(DatedCalendar calendar, DoctorRegistry doctors, String[] times, List<BatchBookingEngine.Request> requests) {
+        int placed = 0;
+        List<LocalDate> openDates = calendar.openDates();
+        for (BatchBookingEngine.Request request : requests) {
+            List<LocalDate> dates = request.getPreferredDates().isEmpty() ? openDates : request.getPreferredDates();
+            Appointment appointment = null;
+            for (int d = 0; d < dates.size() && appointment == null; d++) {
+                LocalDate date = dates.get(d);
+                if (request.getPreferredDoctors().isEmpty()) {
+                    for (int time = 0; time < times.length && appointment == null; time++) {
+                        for (int doctor = 0; doctor < doctors.size() && appointment == null; doctor++) {
+                            if (calendar.isFree(doctor, date, times[time])) {
+                                appointment = calendar.tryBook(doctor, date, time, request.getPatient(), "Match injury");
+                            }
+                        }
+                    }
+                } else {
+                    for (int p = 0; p < request.getPreferredDoctors().size() && appointment == null; p++) {
+                        int doctor = doctors.idOf(request.getPreferredDoctors().get(p));
+                        for (int time = 0; time < times.length && appointment == null; time++) {
+                            if (calendar.isFree(doctor, date, times[time])) {
+                                appointment = calendar.tryBook(doctor, date, time, request.getPatient(), "Match injury");
+                            }
+                        }
+                    }
+                }
+            }
+            if (appointment != null) {
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    /**
+     * Number of assignments that share a doctor, date and time with an earlier one.
+     */
+    private static int doubleBooked(List<Appointment> assignments) {
+        Set<String> slots = new HashSet<>();
+        int duplicates = 0;
+        for (Appointment appointment : assignments) {
+            if (!slots.add(appointment.getDoctorName() + "|" + appointment.getDate() + "|" + appointment.getTime())) {
+                duplicates++;
+            }
+        }
+        return duplicates;
+    }
+
+    private static String line(String path, double[] rates, int placed) {
+        double[] sorted = rates.clone();
+        Arrays.sort(sorted);
+        return String.format("%-8s %14.0f %14.0f %10d", path, sorted[sorted.length / 2], sorted[sorted.length - 1], placed);
+    }
+}
@@ -0,0 +1,175 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Books many appointment requests at once, e.g. every injured player after
+ * a tournament. Requests are resolved in list order (first come, first
+ * served) in one pass over the calendar: each request gets the earliest
+ * free time on its first preferred date with one of its preferred doctors,
+ * falling back to later preferences in order.
+ *
+ * Rationale: Booking dozens of players through the interactive menu means
+ * one round of questions per player. Going straight to the calendar's
+ * free-slot index finds each request's slot in a few word operations, and
+ * tryBook() keeps the batch safe alongside interactive bookings made at
+ * the same time.
+ */
+class BatchBookingEngine {
+    private final DatedCalendar calendar;
+    private final DoctorRegistry doctors;
+    private final int timeCount;
+
+    /**
+     * One patient's booking request.
+     */
+    public static class Request {
+        private final Patient patient;
+        private final List<String> preferredDoctors;
+        private final List<LocalDate> preferredDates;
+        private final String athleteDescription;
+
+        /**
+         * @param patient The patient to book
+         * @param preferredDoctors Doctors in order of preference; empty means any doctor
+         * @param preferredDates Dates in order of preference; empty means any bookable date, earliest first
+         * @param athleteDescription Description stored on the appointment (may be null)
+         */
+        public Request(Patient patient, List<String> preferredDoctors, List<LocalDate> preferredDates, String athleteDescription) {
+            this.patient = patient;
+            this.preferredDoctors = preferredDoctors;
+            this.preferredDates = preferredDates;
+            this.athleteDescription = athleteDescription;
+        }
+
+        public Patient getPatient() {
+            return patient;
+        }
+
+        public List<String> getPreferredDoctors() {
+            return preferredDoctors;
+        }
+
+        public List<LocalDate> getPreferredDates() {
+            return preferredDates;
+        }
+    }
+
+    /**
+     * Outcome of one batch.
+     */
+    public static class Result {
+        private final List<Appointment> assignments;
+        private final List<Request> unplaced;
+        private final long elapsedNanos;
+
+        Result(List<Appointment> assignments, List<Request> unplaced, long elapsedNanos) {
+            this.assignments = assignments;
+            this.unplaced = unplaced;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Booked appointments, in request order. The slots are already taken in
+         * the calendar; recording them on the patients is up to the caller.
+         */
+        public List<Appointment> getAssignments() {
+            return assignments;
+        }
+
+        /**
+         * Requests for which none of the preferred slots was free, in request order.
+         */
+        public List<Request> getUnplaced() {
+            return unplaced;
+        }
+
+        /**
+         * Requests resolved (placed and unplaced) per second.
+         */
+        public double getRequestsPerSecond() {
+            return (assignments.size() + unplaced.size()) / Math.max(1e-9, elapsedNanos / 1e9);
+        }
+    }
+
+    /**
+     * @param calendar The calendar to book in
+     * @param doctors The doctors of the calendar, by scheduling id
+     * @param timeCount Number of times per day in the calendar
+     */
+    public BatchBookingEngine(DatedCalendar calendar, DoctorRegistry doctors, int timeCount) {
+        this.calendar = calendar;
+        this.doctors = doctors;
+        this.timeCount = timeCount;
+    }
+
+    /**
+     * Resolves every request in one pass.
+     */
+    public Result book(List<Request> requests) {
+        long start = System.nanoTime();
+        List<Appointment> assignments = new ArrayList<>();
+        List<Request> unplaced = new ArrayList<>();
+        for (Request request : requests) {
+            Appointment appointment = place(request);
+            if (appointment != null) {
+                assignments.add(appointment);
+            } else {
+                unplaced.add(request);
+            }
+        }
+        return new Result(assignments, unplaced, System.nanoTime() - start);
+    }
+
+    /**
+     * Books the first free slot in preference order: dates first, then doctors.
+     * Preferred dates that cannot be booked are skipped.
+     * @return The booked appointment, or null if nothing preferred is free
+     */
+    private Appointment place(Request request) {
+        int[] doctorOrdinals;
+        try {
+            doctorOrdinals = new int[request.preferredDoctors.size()];
+            for (int i = 0; i < doctorOrdinals.length; i++) {
+                doctorOrdinals[i] = doctors.idOf(request.preferredDoctors.get(i));
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        List<LocalDate> dates = request.preferredDates.isEmpty() ? calendar.openDates() : request.preferredDates;
+        for (LocalDate date : dates) {
+            Appointment appointment = doctorOrdinals.length == 0
+                    ? placeWithAnyDoctor(request, date)
+                    : placeWithPreferredDoctor(request, date, doctorOrdinals);
+            if (appointment != null) {
+                return appointment;
+            }
+        }
+        return null;
+    }
+
+    private Appointment placeWithPreferredDoctor(Request request, LocalDate date, int[] doctorOrdinals) {
+        for (int doctor : doctorOrdinals) {
+            for (int time = calendar.nextFreeTime(doctor, date, 0); time >= 0; time = calendar.nextFreeTime(doctor, date, time + 1)) {
+                Appointment appointment = calendar.tryBook(doctor, date, time, request.patient, request.athleteDescription);
+                if (appointment != null) {
+                    return appointment;
+                }
+                // Taken by a concurrent booking; try the next free time
+            }
+        }
+        return null;
+    }
+
+    private Appointment placeWithAnyDoctor(Request request, LocalDate date) {
+        for (int time = calendar.nextOpenTime(date, 0); time >= 0 && time < timeCount; time = calendar.nextOpenTime(date, time + 1)) {
+            for (int doctor = calendar.nextFreeDoctor(date, time, 0); doctor >= 0; doctor = calendar.nextFreeDoctor(date, time, doctor + 1)) {
+                Appointment appointment = calendar.tryBook(doctor, date, time, request.patient, request.athleteDescription);
+                if (appointment != null) {
+                    return appointment;
+                }
+            }
+        }
+        return null;
+    }
+}
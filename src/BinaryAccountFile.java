@@ -0,0 +1,237 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes patient accounts in a compact, versioned binary format.
+ * Used by BinaryPatientRepository (accounts.store=binary) for its base file
+ * and, record by record, for its journal.
+ *
+ * Layout (varint = unsigned LEB128, string = varint byte length + UTF-8):
+ *   header: int MAGIC, short VERSION, int recordCount
+ *   record: varint length, then the fields in order - username, password,
+ *           name (string), age (varint), gender (byte 0/1),
+ *           contact_no, address (string)
+ *
+ * Rationale: Fields are length-prefixed strings, so a comma in an address
+ * cannot corrupt a record, and numbers are stored as numbers so loading does
+ * no string splitting or parsing. The per-record length lets readers skip
+ * fields appended by newer versions of the format.
+ *
+ * Every length is checked against the bytes actually there, so a damaged
+ * file fails with an IOException instead of a bogus account or an
+ * ArrayIndexOutOfBoundsException.
+ */
+class BinaryAccountFile {
+    /** "SIMS" in ASCII */
+    private static final int MAGIC = 0x53494D53;
+    private static final short VERSION = 1;
+    /** Records longer than this are treated as corruption */
+    static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    private BinaryAccountFile() {
+    }
+
+    /**
+     * Writes all patients to the given file, replacing its contents.
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Collection<Patient> patients, String fileName) throws IOException {
+        try (FileOutputStream file = new FileOutputStream(fileName)) {
+            write(patients, file);
+        }
+    }
+
+    /**
+     * Writes the header and all patients to a stream, which is flushed but
+     * left open (e.g. for the caller to fsync).
+     */
+    static void write(Collection<Patient> patients, OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(patients.size());
+        ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+        for (Patient patient : patients) {
+            writeRecord(out, record, patient);
+        }
+        out.flush();
+    }
+
+    /**
+     * Appends one length-prefixed record.
+     * @param scratch Reused buffer for the record body
+     */
+    static void writeRecord(OutputStream out, ByteArrayOutputStream scratch, Patient patient) throws IOException {
+        scratch.reset();
+        writeString(scratch, patient.getUsername());
+        writeString(scratch, patient.getPassword());
+        writeString(scratch, patient.getName());
+        writeVarint(scratch, patient.getAge());
+        scratch.write(patient.isGender() ? 1 : 0);
+        writeString(scratch, patient.getContact_no());
+        writeString(scratch, patient.getAddress());
+        writeVarint(out, scratch.size());
+        scratch.writeTo(out);
+    }
+
+    /**
+     * Reads every patient from the given file, in file order.
+     * @throws IOException if the file is missing, not in this format,
+     *                     written by a newer, incompatible version, or damaged
+     */
+    public static List<Patient> read(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a binary accounts file: " + fileName);
+            }
+            short version = in.readShort();
+            if (version > VERSION) {
+                throw new IOException("Unsupported accounts file version " + version + " in " + fileName);
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt record count " + count + " in " + fileName);
+            }
+            List<Patient> patients = new ArrayList<>(Math.min(count, 1 << 16));
+            RecordReader reader = new RecordReader(in);
+            for (int i = 0; i < count; i++) {
+                patients.add(reader.next());
+            }
+            return patients;
+        }
+    }
+
+    /**
+     * Reads length-prefixed records one at a time, reusing one buffer.
+     */
+    static class RecordReader {
+        private final DataInputStream in;
+        private byte[] record = new byte[256];
+        private final int[] cursor = new int[1];
+
+        RecordReader(DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return The next patient
+         * @throws EOFException if the stream ends before or inside the record
+         * @throws IOException if the record is damaged
+         */
+        Patient next() throws IOException {
+            int length = readVarint(in);
+            if (length > MAX_RECORD_LENGTH) {
+                throw new IOException("Corrupt account record length " + length);
+            }
+            if (length > record.length) {
+                record = new byte[Math.max(length, record.length * 2)];
+            }
+            in.readFully(record, 0, length);
+            cursor[0] = 0;
+            String username = readString(record, length, cursor);
+            String password = readString(record, length, cursor);
+            String name = readString(record, length, cursor);
+            int age = readVarint(record, length, cursor);
+            if (cursor[0] >= length) {
+                throw new IOException("Account record for " + username + " ends inside its fields");
+            }
+            boolean gender = record[cursor[0]++] != 0;
+            String contact = readString(record, length, cursor);
+            String address = readString(record, length, cursor);
+            // Any bytes left in the record belong to fields added by later versions
+            return new Patient(username, password, name, age, gender, contact, address);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(OutputStream out, int value) {
+        try {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a string from record[cursor, end).
+     * @throws IOException if its length runs past end
+     */
+    private static String readString(byte[] record, int end, int[] cursor) throws IOException {
+        int length = readVarint(record, end, cursor);
+        if (length > end - cursor[0]) {
+            throw new IOException("Corrupt string length " + length + " in account record");
+        }
+        String value = new String(record, cursor[0], length, StandardCharsets.UTF_8);
+        cursor[0] += length;
+        return value;
+    }
+
+    /**
+     * Reads a varint from record[cursor, end).
+     * @throws IOException if it runs past end or is longer than an int
+     */
+    private static int readVarint(byte[] record, int end, int[] cursor) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (cursor[0] >= end || shift > 28) {
+                throw new IOException("Corrupt number in account record");
+            }
+            b = record[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (value < 0) {
+            throw new IOException("Corrupt number in account record");
+        }
+        return value;
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Corrupt account record length");
+            }
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (value < 0) {
+            throw new IOException("Corrupt account record length");
+        }
+        return value;
+    }
+
+    /**
+     * One-shot converter from the text format to the binary format, for
+     * switching an existing installation to accounts.store=binary.
+     * Accounts changed since the last compaction are still in the journal,
+     * so the journal is replayed over the base file before converting.
+     * Usage: java BinaryAccountFile [accounts.txt] [accounts.bin] [accounts.journal]
+     */
+    public static void main(String[] args) throws IOException {
+        String source = args.length > 0 ? args[0] : "accounts.txt";
+        String target = args.length > 1 ? args[1] : "accounts.bin";
+        String journal = args.length > 2 ? args[2] : "accounts.journal";
+        List<Patient> patients = new TextFilePatientRepository(source, journal).loadAll();
+        write(patients, target);
+        System.out.println("Converted " + patients.size() + " accounts from " + source + " ("
+                + new File(source).length() + " bytes) to " + target + " (" + new File(target).length() + " bytes)");
+    }
+}
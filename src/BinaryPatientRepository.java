@@ -0,0 +1,239 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * PatientRepository backed by a BinaryAccountFile (accounts.bin) plus a
+ * journal of binary records appended between compactions.
+ *
+ * Every account is read into memory when the repository is opened; a save
+ * appends the changed records to the journal with one write and one fsync,
+ * and once the journal grows past a fixed fraction of the base file the two
+ * are folded into a new base file. Compaction writes a temporary file,
+ * fsyncs it, renames it over the base file and fsyncs the directory before
+ * the journal is deleted, so a crash leaves either the old or the new state.
+ *
+ * Rationale: The binary format has no separator characters, so any address
+ * or name survives a round trip, and a record loads without splitting or
+ * number parsing. Loading the whole file is then cheap enough that lookups
+ * can be plain map reads instead of an offset index like the text store's.
+ *
+ * A journal that ends inside a record (a crash during an append) is cut
+ * back to its last whole record when the repository is opened.
+ */
+class BinaryPatientRepository implements PatientRepository {
+    /** Journal size (bytes) below which the journal is never compacted */
+    private static final long JOURNAL_COMPACT_MIN = 64 * 1024;
+    /** The journal is compacted once it exceeds 1 / JOURNAL_COMPACT_FRACTION of the base file */
+    private static final long JOURNAL_COMPACT_FRACTION = 4;
+
+    private final File base;
+    private final File journal;
+    private final Map<String, Patient> patients = new LinkedHashMap<>();
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(128);
+
+    /**
+     * Opens the store, reading the base file and replaying the journal.
+     * @param fileName The base accounts file (e.g. accounts.bin)
+     * @param journalFileName The journal file appended to between compactions
+     * @throws UncheckedIOException if the base file exists but cannot be read
+     */
+    public BinaryPatientRepository(String fileName, String journalFileName) {
+        this.base = new File(fileName);
+        this.journal = new File(journalFileName);
+        try {
+            if (base.exists()) {
+                for (Patient patient : BinaryAccountFile.read(fileName)) {
+                    patients.put(patient.getUsername(), patient);
+                }
+            }
+            if (journal.exists()) {
+                replayJournal();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error loading accounts from " + fileName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies the journal's records in order and truncates a record cut
+     * short by a crash, so later appends start on a record boundary.
+     */
+    private void replayJournal() throws IOException {
+        long good = 0;
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(journal), 1 << 16));
+             DataInputStream in = new DataInputStream(counter)) {
+            BinaryAccountFile.RecordReader reader = new BinaryAccountFile.RecordReader(in);
+            while (counter.peek() >= 0) {
+                Patient patient;
+                try {
+                    patient = reader.next();
+                } catch (EOFException e) {
+                    break;
+                }
+                patients.put(patient.getUsername(), patient);
+                good = counter.count;
+            }
+        }
+        if (good < journal.length()) {
+            System.out.println("Discarding an incomplete record at the end of " + journal.getName());
+            try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(good);
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read through it, so the reader knows where the last
+     * whole record ended.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        /** Returns the next byte without consuming it, or -1 at the end */
+        int peek() throws IOException {
+            in.mark(1);
+            int b = in.read();
+            in.reset();
+            return b;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = in.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    @Override
+    public synchronized List<Patient> loadAll() {
+        return new ArrayList<>(patients.values());
+    }
+
+    @Override
+    public synchronized Patient find(String username) {
+        return patients.get(username);
+    }
+
+    @Override
+    public synchronized boolean contains(String username) {
+        return patients.containsKey(username);
+    }
+
+    @Override
+    public synchronized void forEachSummary(BiConsumer<String, String> consumer) {
+        for (Patient patient : patients.values()) {
+            consumer.accept(patient.getUsername(), patient.getName());
+        }
+    }
+
+    /**
+     * Appends the accounts to the journal and blocks until they are on disk.
+     * @throws UncheckedIOException if the journal could not be written; it is
+     *         truncated back to its previous length and nothing is recorded
+     */
+    @Override
+    public synchronized void save(Collection<Patient> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        long goodLength = journal.length();
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            ByteArrayOutputStream batch = new ByteArrayOutputStream(changed.size() * 96);
+            for (Patient patient : changed) {
+                BinaryAccountFile.writeRecord(batch, scratch, patient);
+            }
+            batch.writeTo(out);
+            out.getFD().sync();
+        } catch (IOException e) {
+            try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(goodLength);
+                channel.force(true);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw new UncheckedIOException(e);
+        }
+        for (Patient patient : changed) {
+            patients.put(patient.getUsername(), patient);
+        }
+        if (journal.length() > Math.max(JOURNAL_COMPACT_MIN, base.length() / JOURNAL_COMPACT_FRACTION)) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // Everything is still in the journal, so no save is affected
+                System.out.println("Error compacting accounts: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Records the given accounts and folds the journal into the base file.
+     * @throws UncheckedIOException if the base file could not be rewritten
+     */
+    @Override
+    public synchronized void saveAll(Collection<Patient> all) {
+        for (Patient patient : all) {
+            patients.put(patient.getUsername(), patient);
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes every account to a new base file and deletes the journal.
+     * @throws IOException if the new base file could not be written or
+     *         renamed; the old base file and the journal are then left as they were
+     */
+    private void compact() throws IOException {
+        File temp = new File(base.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            BinaryAccountFile.write(patients.values(), out);
+            out.getFD().sync();
+        }
+        try {
+            Files.move(temp.toPath(), base.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), base.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        // The journal may only go once the new base file survives a crash
+        File directory = base.getAbsoluteFile().getParentFile();
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a directory; the rename is still atomic
+        }
+        if (journal.exists() && !journal.delete()) {
+            System.out.println("Error clearing journal: " + journal.getPath());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the bookings of a DatedCalendar next to its calendar file, so the
+ * calendar's index of appointments can be rebuilt without reading every
+ * patient's history.
+ *
+ * Record layout (DataOutputStream): byte kind, then modified UTF-8 strings:
+ *   BOOKING      - date (ISO-8601), time, doctor name, username, athlete description
+ *   CANCELLATION - date, time, doctor name
+ * A booking without a patient has an empty username.
+ *
+ * Rationale: The calendar file holds one bit per slot but not who booked
+ * it. Appending one small record per booking or cancellation keeps writes
+ * as cheap as PatientHistoryStore's, and the journal only ever covers the
+ * booking horizon: load() drops past days and rewrites the file once dead
+ * records outnumber live ones.
+ */
+class CalendarJournal {
+    private static final byte BOOKING = 1;
+    private static final byte CANCELLATION = 2;
+    /** Dead records below which the journal is never rewritten */
+    private static final int COMPACT_MIN = 256;
+
+    private final File file;
+
+    /**
+     * @param fileName The journal file; created on the first append
+     */
+    public CalendarJournal(String fileName) {
+        this.file = new File(fileName);
+    }
+
+    /**
+     * Appends a booking.
+     */
+    public void appendBooking(Appointment appointment) {
+        append(out -> {
+            out.writeByte(BOOKING);
+            writeSlot(out, appointment);
+            out.writeUTF(appointment.getPatient() != null ? appointment.getPatient().getUsername() : "");
+            out.writeUTF(appointment.getAthleteDescription());
+        });
+    }
+
+    /**
+     * Appends a cancellation. On load it removes the booking of the same
+     * doctor, date and time recorded before it.
+     */
+    public void appendCancellation(Appointment appointment) {
+        append(out -> {
+            out.writeByte(CANCELLATION);
+            writeSlot(out, appointment);
+        });
+    }
+
+    /**
+     * Reads the live bookings on or after from, in the order they were made.
+     * Each appointment carries a Patient holding only the username. If the
+     * file holds many more records than that, it is rewritten with just the
+     * live bookings.
+     */
+    public synchronized List<Appointment> load(LocalDate from) {
+        Map<String, Appointment> live = new LinkedHashMap<>();
+        int records = 0;
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    int kind = in.read();
+                    if (kind < 0) {
+                        break;
+                    }
+                    if (kind == BOOKING) {
+                        LocalDate date = LocalDate.parse(in.readUTF());
+                        String time = in.readUTF();
+                        String doctor = in.readUTF();
+                        String username = in.readUTF();
+                        Patient patient = username.isEmpty() ? null : new Patient(username, "");
+                        live.put(slotKey(date, time, doctor), new Appointment(date, time, doctor, patient, in.readUTF()));
+                    } else if (kind == CANCELLATION) {
+                        LocalDate date = LocalDate.parse(in.readUTF());
+                        live.remove(slotKey(date, in.readUTF(), in.readUTF()));
+                    } else {
+                        System.out.println("Unknown calendar record in " + file.getName() + ", ignoring the rest");
+                        break;
+                    }
+                    records++;
+                }
+            } catch (EOFException e) {
+                // A record cut short by a crash during append; keep everything before it
+            } catch (IOException | IllegalArgumentException | DateTimeException e) {
+                System.out.println("Error loading calendar index: " + e.getMessage());
+            }
+        }
+        List<Appointment> bookings = new ArrayList<>();
+        for (Appointment appointment : live.values()) {
+            if (!appointment.getDate().isBefore(from)) {
+                bookings.add(appointment);
+            }
+        }
+        if (records - bookings.size() > Math.max(COMPACT_MIN, bookings.size())) {
+            rewrite(bookings);
+        }
+        return bookings;
+    }
+
+    /**
+     * Replaces the journal with one booking record per appointment. The new
+     * file is written beside the old one, fsynced and renamed over it, so a
+     * crash leaves one or the other.
+     */
+    public synchronized void rewrite(Collection<Appointment> bookings) {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+                for (Appointment appointment : bookings) {
+                    data.writeByte(BOOKING);
+                    writeSlot(data, appointment);
+                    data.writeUTF(appointment.getPatient() != null ? appointment.getPatient().getUsername() : "");
+                    data.writeUTF(appointment.getAthleteDescription());
+                }
+                data.flush();
+                out.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            File directory = file.getAbsoluteFile().getParentFile();
+            try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                // Not every platform can open a directory; the rename is still atomic
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving calendar index: " + e.getMessage());
+        }
+    }
+
+    private static void writeSlot(DataOutputStream out, Appointment appointment) throws IOException {
+        out.writeUTF(appointment.getDate().toString());
+        out.writeUTF(appointment.getTime());
+        out.writeUTF(appointment.getDoctorName());
+    }
+
+    private static String slotKey(LocalDate date, String time, String doctor) {
+        return date + "|" + time + "|" + doctor;
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Serializes one record and appends it with a single write.
+     */
+    private synchronized void append(RecordWriter record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            record.write(new DataOutputStream(bytes));
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                bytes.writeTo(out);
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving calendar index: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,574 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Appointment calendar on real dates over a rolling horizon of clinic days
+ * (the days in Weekday), starting today.
+ *
+ * Clinic days are numbered consecutively (see dayNumber()), and the slot
+ * registry's days are used as a ring over them: clinic day n lives in
+ * registry day n % dayCount, so the registry always covers the next
+ * dayCount clinic days. Each (doctor, date, time) has its own bit, taken
+ * with the registry's tryBook(). When days pass, advanceTo() frees their
+ * registry days, which then stand for the days at the far end of the
+ * horizon; the registry's firstDay field records where the ring starts, so
+ * a calendar file reopened on a later day expires what passed meanwhile.
+ *
+ * Next to the bits, each doctor has a sorted map from slot key to
+ * appointment, where
+ *
+ *   key = date.toEpochDay() * timeCount + time ordinal
+ *
+ * so keys order by date and then time. Only booked slots are stored. The
+ * maps are persisted in a CalendarJournal and read back on first use.
+ *
+ * Rationale: A sorted map per doctor turns "all bookings for doctor X next
+ * week" into one subMap() range, and expiring past days into a headMap()
+ * walk per doctor, without touching the rest of the calendar. Keeping the
+ * bits in the registry leaves booking a single CAS, and the registry's
+ * free-slot index answers "free times on this date" without scanning.
+ *
+ * Bookings hold the read side of a read-write lock and advanceTo() the
+ * write side, so a booking never lands in a registry day while it is
+ * being handed over to a new date.
+ */
+class DatedCalendar {
+    /** Clinic days per week */
+    private static final int OPEN_DAYS = Weekday.values().length;
+
+    private final DoctorRegistry doctors;
+    private final SlotRegistry registry;
+    private final String[] times;
+    private final int dayCount;
+    private final CalendarJournal journal;
+    private final List<ConcurrentNavigableMap<Long, Appointment>> bookings = new ArrayList<>();
+    private final ReentrantReadWriteLock dayLock = new ReentrantReadWriteLock();
+    private volatile boolean indexLoaded;
+    /** Number of the first bookable clinic day */
+    private volatile long firstDay;
+    private volatile LocalDate today;
+
+    /**
+     * @param doctors The bookable doctors; bookings are addressed by scheduling id
+     * @param registry Registry holding the slot bits, with dayCount(horizonWeeks) days
+     * @param times Time slot labels, in the order they occur during a day
+     * @param today The first bookable day
+     * @param journal Where bookings are persisted, or null to keep them in memory only
+     */
+    public DatedCalendar(DoctorRegistry doctors, SlotRegistry registry, String[] times, LocalDate today, CalendarJournal journal) {
+        this.doctors = doctors;
+        this.registry = registry;
+        this.times = times.clone();
+        this.dayCount = registry.dayCount();
+        this.journal = journal;
+        for (int i = 0; i < doctors.size(); i++) {
+            bookings.add(new ConcurrentSkipListMap<>());
+        }
+        this.indexLoaded = journal == null;
+        moveWindow(today);
+    }
+
+    /**
+     * Number of registry days needed for a horizon of whole weeks.
+     */
+    public static int dayCount(int horizonWeeks) {
+        return horizonWeeks * OPEN_DAYS;
+    }
+
+    /**
+     * Numbers clinic days consecutively: week w (counted in Sunday-to-Saturday
+     * weeks from 1970-01-04, which starts week 1) holds days w * OPEN_DAYS to
+     * w * OPEN_DAYS + OPEN_DAYS - 1, in Weekday order.
+     * @return The number of the first clinic day on or after date
+     */
+    static long dayNumber(LocalDate date) {
+        long shifted = date.toEpochDay() + 4;
+        long week = Math.floorDiv(shifted, 7);
+        int dayOfWeek = Math.floorMod(shifted, 7);
+        for (Weekday weekday : Weekday.values()) {
+            if (weekday.toDayOfWeek().getValue() % 7 >= dayOfWeek) {
+                return week * OPEN_DAYS + weekday.ordinal();
+            }
+        }
+        return (week + 1) * OPEN_DAYS;
+    }
+
+    /**
+     * The date of a clinic day number; see dayNumber().
+     */
+    static LocalDate dateOf(long dayNumber) {
+        long week = Math.floorDiv(dayNumber, OPEN_DAYS);
+        Weekday weekday = Weekday.values()[Math.floorMod(dayNumber, OPEN_DAYS)];
+        return LocalDate.ofEpochDay(week * 7 - 4 + weekday.toDayOfWeek().getValue() % 7);
+    }
+
+    /**
+     * Atomically books a slot if it is free.
+     * @param doctor The doctor's scheduling id
+     * @param time The time's index in the calendar's times
+     * @return The booked appointment, or null if the slot was already taken
+     * @throws IllegalArgumentException if the time is unknown, the clinic is
+     *         closed that day, or the date lies outside the booking horizon
+     */
+    public Appointment tryBook(int doctor, LocalDate date, int time, Patient patient, String athleteDescription) {
+        dayLock.readLock().lock();
+        try {
+            if (!registry.tryBook(bitIndex(doctor, checkBookable(date), checkedTime(time)))) {
+                return null;
+            }
+            return index(doctor, new Appointment(date, times[time], doctors.nameOf(doctor), patient, athleteDescription), time);
+        } finally {
+            dayLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Same as tryBook(int, LocalDate, int, ...) with the time's label.
+     */
+    public Appointment tryBook(int doctor, LocalDate date, String time, Patient patient, String athleteDescription) {
+        return tryBook(doctor, date, registry.timeOrdinal(time), patient, athleteDescription);
+    }
+
+    /**
+     * Books a recurring series all-or-nothing: the same doctor and time on
+     * the given date and on the same weekday for the following weeks. Every
+     * week is its own slot, so the whole series is one tryBookAll() over the
+     * registry: if a week is taken, the weeks taken so far are released and
+     * nothing is booked. Lock-free on the registry, so series and single
+     * bookings cannot deadlock; a single booking racing with a series that
+     * rolls back may see a slot taken for that moment.
+     *
+     * @param doctor The doctor's scheduling id
+     * @param weeks Number of weekly appointments in the series
+     * @return The booked appointments in date order, or null if any slot was taken
+     * @throws IllegalArgumentException if the time is unknown or a date is
+     *         outside the horizon or on a closed day
+     */
+    public List<Appointment> tryBookSeries(int doctor, LocalDate firstDate, String time, int weeks,
+                                           Patient patient, String athleteDescription) {
+        if (weeks < 1) {
+            throw new IllegalArgumentException("A series needs at least one appointment");
+        }
+        int timeOrdinal = registry.timeOrdinal(time);
+        dayLock.readLock().lock();
+        try {
+            int[] bits = new int[weeks];
+            for (int week = 0; week < weeks; week++) {
+                bits[week] = bitIndex(doctor, checkBookable(firstDate.plusWeeks(week)), timeOrdinal);
+            }
+            if (!registry.tryBookAll(bits)) {
+                return null;
+            }
+            List<Appointment> series = new ArrayList<>(weeks);
+            String doctorName = doctors.nameOf(doctor);
+            for (int week = 0; week < weeks; week++) {
+                Appointment appointment = new Appointment(firstDate.plusWeeks(week), time, doctorName, patient, athleteDescription);
+                series.add(index(doctor, appointment, timeOrdinal));
+            }
+            return series;
+        } finally {
+            dayLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Frees the slot of a dated appointment if the appointment still holds
+     * it: the slot's booking is this appointment, or one for the same
+     * patient (an appointment read back from history is a different object).
+     * Where patients may be waiting for the slot, cancel through
+     * AppointmentWaitlist.cancel() instead.
+     * @param doctor The appointment's doctor, by scheduling id
+     * @return true if the slot was freed
+     * @throws IllegalArgumentException if the time is unknown
+     */
+    public boolean cancel(int doctor, Appointment appointment) {
+        if (appointment.getDate() == null) {
+            return false;
+        }
+        int time = registry.timeOrdinal(appointment.getTime());
+        dayLock.readLock().lock();
+        try {
+            if (!unindex(doctor, appointment, time)) {
+                return false;
+            }
+            registry.release(bitIndex(doctor, appointment.getDate(), time));
+            return true;
+        } finally {
+            dayLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hands the slot of a dated appointment to another patient if the
+     * appointment still holds it (see cancel()). The slot stays booked
+     * throughout, so a concurrent tryBook() cannot take it in between.
+     * @param doctor The appointment's doctor, by scheduling id
+     * @return The new patient's appointment, or null if the slot was not held
+     * @throws IllegalArgumentException if the time is unknown
+     */
+    public Appointment transfer(int doctor, Appointment appointment, Patient patient, String athleteDescription) {
+        if (appointment.getDate() == null) {
+            return null;
+        }
+        int time = registry.timeOrdinal(appointment.getTime());
+        dayLock.readLock().lock();
+        try {
+            if (!unindex(doctor, appointment, time)) {
+                return null;
+            }
+            return index(doctor, new Appointment(appointment.getDate(), times[time], doctors.nameOf(doctor), patient, athleteDescription), time);
+        } finally {
+            dayLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records an appointment on a slot whose bit the caller already holds
+     * without an appointment, e.g. one whose last interval hold was just
+     * released and is being handed to a waiting patient.
+     * @param time The time's index in the calendar's times
+     * @return The new appointment, or null if the date has passed meanwhile
+     *         and the slot was freed with its day
+     */
+    public Appointment assign(int doctor, LocalDate date, int time, Patient patient, String athleteDescription) {
+        dayLock.readLock().lock();
+        try {
+            if (!isBookable(date)) {
+                return null;
+            }
+            return index(doctor, new Appointment(date, times[checkedTime(time)], doctors.nameOf(doctor), patient, athleteDescription), time);
+        } finally {
+            dayLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Frees a slot whose bit the caller holds without an appointment (see
+     * assign()). A slot on a date that has passed was already freed with its
+     * day, and its bit may stand for a later date by now, so it is left alone.
+     * @return true if the slot was freed
+     */
+    public boolean releaseSlot(int doctor, LocalDate date, int time) {
+        dayLock.readLock().lock();
+        try {
+            return isBookable(date) && registry.release(bitIndex(doctor, date, checkedTime(time)));
+        } finally {
+            dayLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an appointment from the index and records the cancellation if
+     * it still holds its slot. The slot's bit is left to the caller.
+     */
+    private boolean unindex(int doctor, Appointment appointment, int time) {
+        ensureIndexLoaded();
+        long key = key(appointment.getDate(), time);
+        ConcurrentNavigableMap<Long, Appointment> doctorBookings = bookings.get(doctor);
+        Appointment held = doctorBookings.get(key);
+        if (held == null || !(held == appointment || samePatient(held, appointment))) {
+            return false;
+        }
+        if (!doctorBookings.remove(key, held)) {
+            return false;
+        }
+        if (journal != null) {
+            journal.appendCancellation(held);
+        }
+        return true;
+    }
+
+    private static boolean samePatient(Appointment a, Appointment b) {
+        return a.getPatient() != null && b.getPatient() != null
+                && a.getPatient().getUsername().equals(b.getPatient().getUsername());
+    }
+
+    /**
+     * Checks whether a slot is free. Slots outside the horizon or on closed
+     * days are never free. The answer may be stale by the time it is used.
+     * @throws IllegalArgumentException if the time is unknown
+     */
+    public boolean isFree(int doctor, LocalDate date, String time) {
+        int timeOrdinal = registry.timeOrdinal(time);
+        return isBookable(date) && registry.isFree(bitIndex(doctor, date, timeOrdinal));
+    }
+
+    /**
+     * Returns the first free time at or after fromTime for the doctor on a
+     * date, or -1 if there is none or the date cannot be booked.
+     */
+    public int nextFreeTime(int doctor, LocalDate date, int fromTime) {
+        if (!isBookable(date)) {
+            return -1;
+        }
+        return registry.nextFreeTime(doctor, day(dayNumber(date)), fromTime);
+    }
+
+    /**
+     * Returns the first time at or after fromTime on a date at which at least
+     * one doctor is free, or -1 if there is none or the date cannot be booked.
+     */
+    public int nextOpenTime(LocalDate date, int fromTime) {
+        if (!isBookable(date) || fromTime >= times.length) {
+            return -1;
+        }
+        int base = day(dayNumber(date)) * times.length;
+        int slot = registry.nextOpenSlot(base + fromTime);
+        return slot >= 0 && slot < base + times.length ? slot - base : -1;
+    }
+
+    /**
+     * Returns the first doctor at or after fromDoctor who is free at a date
+     * and time, or -1 if there is none or the date cannot be booked.
+     */
+    public int nextFreeDoctor(LocalDate date, int time, int fromDoctor) {
+        if (!isBookable(date)) {
+            return -1;
+        }
+        return registry.nextFreeDoctor(day(dayNumber(date)) * times.length + time, fromDoctor);
+    }
+
+    /**
+     * The bookable dates, from today to the end of the horizon.
+     */
+    public List<LocalDate> openDates() {
+        long first = firstDay;
+        List<LocalDate> dates = new ArrayList<>(dayCount);
+        for (int i = 0; i < dayCount; i++) {
+            dates.add(dateOf(first + i));
+        }
+        return dates;
+    }
+
+    /**
+     * True if the date is a clinic day inside the booking horizon.
+     */
+    public boolean isBookable(LocalDate date) {
+        if (Weekday.fromDayOfWeek(date.getDayOfWeek()) == null) {
+            return false;
+        }
+        long n = dayNumber(date);
+        return n >= firstDay && n < firstDay + dayCount;
+    }
+
+    /**
+     * Lists a doctor's bookings with from <= date < to, in date and time order.
+     */
+    public List<Appointment> bookingsFor(int doctor, LocalDate from, LocalDate to) {
+        dayLock.readLock().lock();
+        try {
+            ensureIndexLoaded();
+            return new ArrayList<>(bookings.get(doctor).subMap(key(from, 0), key(to, 0)).values());
+        } finally {
+            dayLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists every doctor's bookings on one date, grouped by doctor in scheduling id order.
+     */
+    public List<Appointment> bookingsOn(LocalDate date) {
+        dayLock.readLock().lock();
+        try {
+            ensureIndexLoaded();
+            List<Appointment> result = new ArrayList<>();
+            LocalDate next = date.plusDays(1);
+            for (int i = 0; i < bookings.size(); i++) {
+                result.addAll(bookings.get(i).subMap(key(date, 0), key(next, 0)).values());
+            }
+            return result;
+        } finally {
+            dayLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the horizon forward to start at newToday: the bookings before it
+     * expire and their registry days are freed for the new end of the
+     * horizon. Costs one headMap() walk per doctor over the expired bookings
+     * plus one pass over each freed registry day.
+     * @return The number of slots freed
+     */
+    public int advanceTo(LocalDate newToday) {
+        dayLock.writeLock().lock();
+        try {
+            if (!newToday.isAfter(today)) {
+                return 0;
+            }
+            if (indexLoaded) {
+                for (ConcurrentNavigableMap<Long, Appointment> doctorBookings : bookings) {
+                    doctorBookings.headMap(key(newToday, 0)).clear();
+                }
+            }
+            return moveWindow(newToday);
+        } finally {
+            dayLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces every booking with the given dated appointments, e.g. the
+     * persisted reservations when the calendar file needs recovery, and moves
+     * the horizon to start at today. Appointments outside the horizon are
+     * dropped. The registry and the journal are rewritten to match. Must not
+     * run alongside other bookings.
+     * @param appointments Dated appointments with registered doctors and times
+     * @return The number of appointments dropped because an earlier one in
+     *         the list has the same doctor, date and time
+     */
+    public int restore(List<Appointment> appointments, LocalDate today) {
+        dayLock.writeLock().lock();
+        try {
+            for (int day = 0; day < dayCount; day++) {
+                registry.clearDay(day);
+            }
+            for (ConcurrentNavigableMap<Long, Appointment> doctorBookings : bookings) {
+                doctorBookings.clear();
+            }
+            this.today = today;
+            this.firstDay = dayNumber(today);
+            registry.setFirstDay(firstDay);
+            List<Appointment> kept = new ArrayList<>();
+            int duplicates = 0;
+            for (Appointment appointment : appointments) {
+                if (appointment.getDate() == null || !isBookable(appointment.getDate())) {
+                    continue;
+                }
+                int doctor = doctors.idOf(appointment.getDoctorName());
+                int time = registry.timeOrdinal(appointment.getTime());
+                if (!registry.tryBook(bitIndex(doctor, appointment.getDate(), time))) {
+                    duplicates++;
+                    continue;
+                }
+                bookings.get(doctor).put(key(appointment.getDate(), time), appointment);
+                kept.add(appointment);
+            }
+            if (journal != null) {
+                journal.rewrite(kept);
+            }
+            indexLoaded = true;
+            return duplicates;
+        } finally {
+            dayLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * First day after the bookable horizon.
+     */
+    public LocalDate getHorizonEnd() {
+        return dateOf(firstDay + dayCount);
+    }
+
+    public LocalDate getToday() {
+        return today;
+    }
+
+    /**
+     * Bit index in the registry of a (doctor, date, time) slot. The date
+     * must be a clinic day; whether it is inside the horizon is not checked.
+     * @throws IllegalArgumentException if the clinic is closed that day
+     */
+    int bitIndex(int doctor, LocalDate date, int time) {
+        if (Weekday.fromDayOfWeek(date.getDayOfWeek()) == null) {
+            throw new IllegalArgumentException("No appointments on " + date.getDayOfWeek() + " (" + date + ")");
+        }
+        return registry.bitIndex(doctor, day(dayNumber(date)), time);
+    }
+
+    /**
+     * Records a booked appointment in the index and the journal.
+     */
+    private Appointment index(int doctor, Appointment appointment, int time) {
+        ensureIndexLoaded();
+        bookings.get(doctor).put(key(appointment.getDate(), time), appointment);
+        if (journal != null) {
+            journal.appendBooking(appointment);
+        }
+        return appointment;
+    }
+
+    /**
+     * Reads the journal into the index the first time the index is needed,
+     * keeping only bookings whose slot is still taken in the registry.
+     */
+    private synchronized void ensureIndexLoaded() {
+        if (indexLoaded) {
+            return;
+        }
+        for (Appointment appointment : journal.load(today)) {
+            int doctor = doctors.findId(appointment.getDoctorName());
+            if (doctor < 0 || !isBookable(appointment.getDate())) {
+                continue;
+            }
+            try {
+                int time = registry.timeOrdinal(appointment.getTime());
+                if (!registry.isFree(bitIndex(doctor, appointment.getDate(), time))) {
+                    bookings.get(doctor).put(key(appointment.getDate(), time), appointment);
+                }
+            } catch (IllegalArgumentException e) {
+                // A time that is no longer offered
+            }
+        }
+        indexLoaded = true;
+    }
+
+    /**
+     * Moves the ring to start at today's clinic day, freeing the registry
+     * days of the clinic days that left it.
+     * @return The number of slots freed
+     */
+    private int moveWindow(LocalDate newToday) {
+        long first = dayNumber(newToday);
+        long stored = registry.firstDay();
+        int freed = 0;
+        if (stored != first) {
+            long from = Math.min(stored, first);
+            long to = Math.max(stored, first);
+            if (to - from >= dayCount) {
+                from = 0;
+                to = dayCount;
+            }
+            for (long n = from; n < to; n++) {
+                freed += registry.clearDay(day(n));
+            }
+            registry.setFirstDay(first);
+        }
+        this.firstDay = first;
+        this.today = newToday;
+        return freed;
+    }
+
+    /**
+     * @return The date, if it is a clinic day inside the horizon
+     * @throws IllegalArgumentException if the date is outside the horizon or on a closed day
+     */
+    private LocalDate checkBookable(LocalDate date) {
+        if (Weekday.fromDayOfWeek(date.getDayOfWeek()) == null) {
+            throw new IllegalArgumentException("No appointments on " + date.getDayOfWeek() + " (" + date + ")");
+        }
+        if (!isBookable(date)) {
+            throw new IllegalArgumentException("Date " + date + " is outside the booking horizon " + today + " to " + getHorizonEnd().minusDays(1));
+        }
+        return date;
+    }
+
+    private int checkedTime(int time) {
+        if (time < 0 || time >= times.length) {
+            throw new IllegalArgumentException("Unknown time slot: " + time);
+        }
+        return time;
+    }
+
+    private int day(long dayNumber) {
+        return (int) Math.floorMod(dayNumber, (long) dayCount);
+    }
+
+    private long key(LocalDate date, int time) {
+        return date.toEpochDay() * times.length + time;
+    }
+}
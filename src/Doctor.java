@@ -1,3 +1,5 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Concrete class representing a Doctor in the Sports Injury Management System.
  * Extends Person to inherit common attributes (name, age, gender, contact, address).
@@ -9,7 +11,8 @@
 public class Doctor extends Person {
     private final String specialty;
     private final int id;
-    private static int ID_Counter =1 ;
+    /** Next professional ID; atomic so doctors can be created from several threads */
+    private static final AtomicInteger ID_Counter = new AtomicInteger(1);
 
     /**
      * Constructs a Doctor with full personal and professional information.
@@ -19,7 +22,7 @@ public class Doctor extends Person {
     //msh mfrod ast8d el abtract method bta3t el person 🚨🚨🚨 
     public Doctor(String name, int age, boolean gender, String contact_no, String address, String specialty) {
         super(name, age, gender, contact_no, address);
-        this.id = ID_Counter++;
+        this.id = ID_Counter.getAndIncrement();
         this.specialty = specialty;
     }
 
@@ -38,4 +41,9 @@ public class Doctor extends Person {
     public int getId() {
         return id;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,155 @@
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares keying bookings by doctor display name with keying them by the
+ * dense scheduling id from DoctorRegistry, on the clinic's doctors:
+ *   resolve - finding the doctor: hashing and comparing the name in
+ *             idOf(), versus indexing the array with get()
+ *   check   - an availability check in a DatedCalendar, starting from
+ *             the name or from the id
+ *
+ * Names are separate String copies with their own characters, as when they
+ * are read back from stored reservations, so a lookup compares the full
+ * name (and hashes it the first time that copy is used).
+ * Figures are ns per operation (best of the timed rounds) and bytes
+ * allocated per operation. The last line compares the heap one booking
+ * needs for its doctor key: its own copy of the name, or an int.
+ * Usage: java DoctorLookupBenchmark [operations] [rounds]
+ */
+class DoctorLookupBenchmark {
+    private static final String[] TIMES = {"4:30 PM", "6:30 PM", "8:30 PM", "10:00 PM"};
+    private static final int HORIZON_WEEKS = 12;
+    /** Bookings whose doctor keys are kept alive for the memory comparison */
+    private static final int KEPT_KEYS = 1_000_000;
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        DoctorRegistry doctors = DoctorRegistry.clinic();
+        SlotRegistry registry = new SlotRegistry(doctors, DatedCalendar.dayCount(HORIZON_WEEKS), TIMES);
+        DatedCalendar calendar = new DatedCalendar(doctors, registry, TIMES, LocalDate.now(), null);
+        List<LocalDate> dates = calendar.openDates();
+        Random random = new Random(42);
+        for (int i = 0; i < dates.size() * doctors.size(); i++) {
+            calendar.tryBook(random.nextInt(doctors.size()), dates.get(random.nextInt(dates.size())),
+                    random.nextInt(TIMES.length), null, "Benchmark");
+        }
+
+        // Measured before the lookup arrays exist, so their collection cannot skew it
+        String[] keptNames = new String[KEPT_KEYS];
+        long before = usedHeap();
+        for (int i = 0; i < KEPT_KEYS; i++) {
+            keptNames[i] = copy(doctors.nameOf(i % doctors.size()));
+        }
+        long nameBytes = usedHeap() - before;
+        before = usedHeap();
+        int[] keptIds = new int[KEPT_KEYS];
+        for (int i = 0; i < KEPT_KEYS; i++) {
+            keptIds[i] = i % doctors.size();
+        }
+        long idBytes = usedHeap() - before;
+        String memory = String.format("doctor key per booking: name %.1f B, id %.1f B (%d bookings, %d/%d kept)",
+                nameBytes / (double) KEPT_KEYS, idBytes / (double) KEPT_KEYS, KEPT_KEYS, keptNames.length, keptIds.length);
+
+        int[] ids = new int[operations];
+        String[] names = new String[operations];
+        LocalDate[] dateOf = new LocalDate[operations];
+        String[] timeOf = new String[operations];
+        for (int i = 0; i < operations; i++) {
+            ids[i] = random.nextInt(doctors.size());
+            names[i] = copy(doctors.nameOf(ids[i]));
+            dateOf[i] = dates.get(random.nextInt(dates.size()));
+            timeOf[i] = TIMES[random.nextInt(TIMES.length)];
+        }
+
+        boolean measured = allocatedBytes() >= 0;
+        System.out.printf("%-10s %-8s %10s %10s   (%d doctors, %d operations)%n",
+                "key", "workload", "ns/op", "B/op", doctors.size(), operations);
+        long[] checksums = new long[2];
+        String[] workloads = {"resolve", "check"};
+        for (String workload : workloads) {
+            for (int byName = 1; byName >= 0; byName--) {
+                for (int i = 0; i < 3; i++) {
+                    run(workload, byName == 1, doctors, calendar, ids, names, dateOf, timeOf);
+                }
+                long best = Long.MAX_VALUE;
+                long bestBytes = 0;
+                for (int i = 0; i < rounds; i++) {
+                    long bytes = allocatedBytes();
+                    long start = System.nanoTime();
+                    checksums[byName] += run(workload, byName == 1, doctors, calendar, ids, names, dateOf, timeOf);
+                    long elapsed = System.nanoTime() - start;
+                    if (elapsed < best) {
+                        best = elapsed;
+                        bestBytes = allocatedBytes() - bytes;
+                    }
+                }
+                System.out.printf("%-10s %-8s %10.1f %10s%n", byName == 1 ? "name" : "id", workload,
+                        best / (double) operations, measured ? String.format("%.1f", bestBytes / (double) operations) : "n/a");
+            }
+        }
+
+        System.out.println(memory);
+
+        if (checksums[0] != checksums[1]) {
+            System.out.println("FAILED: name and id lookups disagree (" + checksums[1] + " vs " + checksums[0] + ")");
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+
+    /**
+     * Runs one workload keyed by name or by id.
+     * @return A count that depends on every answer, so no lookup can be optimized away
+     */
+    private static long run(String workload, boolean byName, DoctorRegistry doctors, DatedCalendar calendar,
+                            int[] ids, String[] names, LocalDate[] dateOf, String[] timeOf) {
+        long count = 0;
+        if (workload.equals("resolve")) {
+            for (int i = 0; i < ids.length; i++) {
+                Doctor doctor = byName ? doctors.get(doctors.idOf(names[i])) : doctors.get(ids[i]);
+                count += doctor.getName().length();
+            }
+        } else {
+            for (int i = 0; i < ids.length; i++) {
+                int doctor = byName ? doctors.idOf(names[i]) : ids[i];
+                if (calendar.isFree(doctor, dateOf[i], timeOf[i])) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A copy of the name with its own character array, like one parsed from a file.
+     */
+    private static String copy(String name) {
+        return new String(name.toCharArray());
+    }
+
+    /**
+     * Heap in use after a collection; only precise enough for large differences.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Bytes allocated by this thread so far, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,126 @@
+import java.time.DayOfWeek;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The doctors that can be booked, each with a dense scheduling id
+ * (0..size()-1) that is its index in this registry.
+ *
+ * Scheduling structures (SlotRegistry, waitlists, Appointment) key doctors
+ * by this id, so resolving a doctor is an array index instead of hashing
+ * and comparing a display name such as "Dr. Ahmed Mo'men". Names are only
+ * hashed at the edges, e.g. when reading a stored reservation.
+ *
+ * The scheduling id is separate from Doctor.getId(), the professional ID
+ * assigned when the Doctor is created.
+ *
+ * Each doctor also has an IntervalSchedule with their working hours and
+ * variable-length appointments, booked through Appointment.bookInterval().
+ */
+class DoctorRegistry {
+    private final Doctor[] doctors;
+    private final String[] names;
+    private final IntervalSchedule[] schedules;
+    private final Map<String, Integer> idsByName = new HashMap<>();
+
+    /**
+     * @param doctors The bookable doctors; each gets its list index as scheduling id
+     * @throws IllegalArgumentException if two doctors have the same name
+     */
+    public DoctorRegistry(List<Doctor> doctors) {
+        this.doctors = doctors.toArray(new Doctor[0]);
+        this.names = new String[this.doctors.length];
+        this.schedules = new IntervalSchedule[this.doctors.length];
+        for (int i = 0; i < this.doctors.length; i++) {
+            names[i] = this.doctors[i].getName();
+            schedules[i] = new IntervalSchedule();
+            if (idsByName.put(names[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate doctor name: " + names[i]);
+            }
+        }
+    }
+
+    /** Placeholder age for clinic doctors whose details are not on record */
+    private static final int UNKNOWN_AGE = 0;
+    /** Placeholder contact number for clinic doctors whose details are not on record */
+    private static final String UNKNOWN_CONTACT = "00000000000";
+    /** Placeholder specialty for clinic doctors whose details are not on record */
+    private static final String UNKNOWN_SPECIALTY = "Unknown";
+
+    /**
+     * The clinic's doctors, in the order they are offered to patients.
+     * Only the names (and so the scheduling ids) come from the clinic; age,
+     * contact number and specialty are the UNKNOWN_ placeholders, and gender
+     * is unset (false), until real staff details are available.
+     */
+    static DoctorRegistry clinic() {
+        DoctorRegistry registry = new DoctorRegistry(List.of(
+                placeholderDoctor("Dr. Maiada"),
+                placeholderDoctor("Dr. Ahmed Mo'men"),
+                placeholderDoctor("Dr. Shehab Wael"),
+                placeholderDoctor("Dr. Omar Tamer")));
+        // Evening clinics on the days in Weekday, covering the fixed TIMES
+        for (IntervalSchedule schedule : registry.schedules) {
+            for (DayOfWeek day : new DayOfWeek[]{DayOfWeek.SUNDAY, DayOfWeek.TUESDAY, DayOfWeek.THURSDAY}) {
+                schedule.addWorkingHours(IntervalSchedule.minuteOfWeek(day, 16, 0), IntervalSchedule.minuteOfWeek(day, 23, 0));
+            }
+        }
+        return registry;
+    }
+
+    private static Doctor placeholderDoctor(String name) {
+        return new Doctor(name, UNKNOWN_AGE, false, UNKNOWN_CONTACT, "Clinic", UNKNOWN_SPECIALTY);
+    }
+
+    /**
+     * Number of doctors; scheduling ids run from 0 to size() - 1.
+     */
+    public int size() {
+        return doctors.length;
+    }
+
+    public Doctor get(int id) {
+        return doctors[id];
+    }
+
+    /**
+     * The doctor's working hours and variable-length appointments.
+     */
+    public IntervalSchedule scheduleOf(int id) {
+        return schedules[id];
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * Looks up a doctor's scheduling id by display name.
+     * @return The id, or -1 if no doctor has this name
+     */
+    public int findId(String name) {
+        Integer id = idsByName.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Looks up a doctor's scheduling id by display name.
+     * @return The id
+     * @throws IllegalArgumentException if no doctor has this name
+     */
+    public int idOf(String name) {
+        int id = findId(name);
+        if (id < 0) {
+            throw new IllegalArgumentException("Unknown doctor: " + name);
+        }
+        return id;
+    }
+
+    /**
+     * Display names indexed by scheduling id (a copy).
+     */
+    public String[] names() {
+        return names.clone();
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * PatientRepository that keeps accounts in memory only.
+ * Nothing survives the process; intended for tests and for measuring
+ * the account logic without any I/O.
+ */
+class InMemoryPatientRepository implements PatientRepository {
+    private final Map<String, Patient> patients = new LinkedHashMap<>();
+
+    @Override
+    public synchronized List<Patient> loadAll() {
+        return new ArrayList<>(patients.values());
+    }
+
+    @Override
+    public synchronized Patient find(String username) {
+        return patients.get(username);
+    }
+
+    @Override
+    public synchronized boolean contains(String username) {
+        return patients.containsKey(username);
+    }
+
+    @Override
+    public synchronized void forEachSummary(BiConsumer<String, String> consumer) {
+        for (Patient patient : patients.values()) {
+            consumer.accept(patient.getUsername(), patient.getName());
+        }
+    }
+
+    @Override
+    public synchronized void save(Collection<Patient> changed) {
+        for (Patient patient : changed) {
+            patients.put(patient.getUsername(), patient);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Patient> all) {
+        save(all);
+    }
+}
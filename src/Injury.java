@@ -1,7 +1,8 @@
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a sports injury with athlete-friendly descriptions.
@@ -18,13 +19,15 @@ public class Injury {
     private final BodyPart bodyPart;
     private final boolean movable;
     private final String athleteDescription;
+    /** Index in the catalog, or -1 for an injury that is not in it; set once at class init */
+    private int id = -1;
 
     /**
      * Static list of the top 10 most common athletic injuries.
      * These injuries are predefined to ensure consistency and provide
      * athlete-friendly descriptions that don't require medical knowledge.
      */
-    private static final List<Injury> COMMON_INJURIES = Arrays.asList(
+    private static final List<Injury> COMMON_INJURIES = List.of(
         new Injury("Quadriceps Contusion", BodyPart.THIGH, true, "Deep bruise from direct impact. Can walk but with pain."),
     new Injury("Hamstring Strain Grade 2", BodyPart.HAMSTRING, true, "Partial muscle tear. Pain when bending knee or stretching."),
 
@@ -65,6 +68,33 @@ public class Injury {
     new Injury("Anterior Ankle Impingement", BodyPart.ANKLE, true, "Pain in front of ankle when pointing toes up.")
         );
 
+    /**
+     * The catalog grouped by body part, and by type name, built once at class init.
+     *
+     * Rationale: The GUI re-filters the catalog on every body-part selection.
+     * Grouping it up front turns that into one EnumMap lookup (an array index
+     * by ordinal) returning a shared immutable list, with no scan and no
+     * allocation per call.
+     */
+    private static final Map<BodyPart, List<Injury>> BY_BODY_PART = new EnumMap<>(BodyPart.class);
+    private static final Map<String, Injury> BY_TYPE = new HashMap<>();
+
+    static {
+        Map<BodyPart, List<Injury>> groups = new EnumMap<>(BodyPart.class);
+        for (BodyPart part : BodyPart.values()) {
+            groups.put(part, new ArrayList<>());
+        }
+        for (int i = 0; i < COMMON_INJURIES.size(); i++) {
+            Injury injury = COMMON_INJURIES.get(i);
+            injury.id = i;
+            groups.get(injury.bodyPart).add(injury);
+            BY_TYPE.put(injury.type, injury);
+        }
+        for (Map.Entry<BodyPart, List<Injury>> group : groups.entrySet()) {
+            BY_BODY_PART.put(group.getKey(), List.copyOf(group.getValue()));
+        }
+    }
+
     /**
      * Constructs an Injury with all required attributes.
      **/
@@ -87,27 +117,53 @@ public class Injury {
         return COMMON_INJURIES.toArray(new Injury[0]);
     }
 
+    /**
+     * Finds a catalog injury by its type name.
+     * @param type The injury type (e.g., "ACL Tear")
+     * @return The matching injury, or null if the catalog has no such type
+     */
+    public static Injury findByType(String type) {
+        return BY_TYPE.get(type);
+    }
+
+    /**
+     * Finds a catalog injury by its id (see getId()).
+     * @param id The catalog id, from 0 to catalogSize() - 1
+     * @return The matching injury, or null if the id is out of range
+     */
+    public static Injury byId(int id) {
+        return id >= 0 && id < COMMON_INJURIES.size() ? COMMON_INJURIES.get(id) : null;
+    }
+
+    /**
+     * Number of injuries in the catalog; ids run from 0 to catalogSize() - 1.
+     */
+    public static int catalogSize() {
+        return COMMON_INJURIES.size();
+    }
+
     /**
      * Filters injuries by the specified body part.
      * If null is passed, returns all injuries (useful for "All" selection).
-     * Uses Java Streams for efficient filtering.
      * 
      * @param part The BodyPart enum to filter by (null returns all injuries)
-     * @return A filtered list of injuries matching the specified body part
+     * @return An unmodifiable list of injuries matching the specified body part,
+     *         shared between callers
      */
     public static List<Injury> getInjuriesByBodyPart(BodyPart part) {
         if (part == null) {
             return COMMON_INJURIES;
         }
-        
-        ArrayList<Injury> result = new ArrayList<Injury>();
-        for (Injury injury : COMMON_INJURIES) {
-            if (injury.bodyPart == part) {
-                result.add(injury);
-            }
-        }
-        return result;
-         
+        return BY_BODY_PART.get(part);
+    }
+
+    /**
+     * Retrieves this injury's catalog id, a small dense integer other
+     * components can store instead of the injury itself.
+     * @return The id, or -1 if this injury is not in the catalog
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Full-text search over injury names and athlete descriptions, so a patient
+ * can type what they feel ("pain when jumping") instead of first guessing
+ * the right body part.
+ *
+ * Text is lowercased, split on anything that is not a letter or digit,
+ * stripped of common words ("when", "the", ...) and cut to a rough stem
+ * ("jumping" and "jumps" both become "jump"). Each term maps to a posting
+ * list of (injury id, weight) pairs, where the weight is the term's
+ * frequency in that injury, with words in the injury name counted twice,
+ * times its inverse document frequency, divided by the length of the
+ * injury's text.
+ * A query adds up the weights of its terms' postings, so only injuries that
+ * share a term with the query are touched.
+ *
+ * Rationale: The index is built once and never changes afterwards, so one
+ * instance (CATALOG) can be searched from the console and the GUI at the
+ * same time without locking. Terms like "pain" that appear in most
+ * descriptions get a low inverse document frequency and do not crowd out
+ * rarer, more telling terms like "jump".
+ */
+class InjurySearchIndex {
+    private static final int TYPE_WEIGHT = 2;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "at", "be", "but", "by", "can", "do", "especially",
+            "for", "from", "if", "in", "is", "it", "its", "my", "of", "on", "or",
+            "the", "to", "very", "when", "with");
+
+    /** Index over Injury's catalog; shared read-only by every caller */
+    static final InjurySearchIndex CATALOG = new InjurySearchIndex(Injury.getAllInjuries());
+
+    private final Injury[] injuries;
+    /** Term -> ids of the injuries containing it, ascending */
+    private final Map<String, int[]> postingIds = new HashMap<>();
+    /** Term -> weights, parallel to postingIds */
+    private final Map<String, float[]> postingWeights = new HashMap<>();
+
+    /**
+     * Indexes the given injuries. An injury's id in this index is its
+     * position in the array.
+     */
+    public InjurySearchIndex(Injury[] injuries) {
+        this.injuries = injuries.clone();
+        Map<String, Map<Integer, Integer>> frequencies = new HashMap<>();
+        int[] lengths = new int[this.injuries.length];
+        for (int id = 0; id < this.injuries.length; id++) {
+            Injury injury = this.injuries[id];
+            lengths[id] += count(frequencies, id, tokenize(injury.getType()), TYPE_WEIGHT);
+            lengths[id] += count(frequencies, id, tokenize(injury.getAthleteDescription()), 1);
+        }
+
+        for (Map.Entry<String, Map<Integer, Integer>> term : frequencies.entrySet()) {
+            Map<Integer, Integer> byId = term.getValue();
+            double idf = Math.log(1.0 + (double) this.injuries.length / byId.size());
+            int[] ids = new int[byId.size()];
+            float[] weights = new float[byId.size()];
+            int i = 0;
+            for (int id = 0; id < this.injuries.length; id++) {
+                Integer frequency = byId.get(id);
+                if (frequency != null) {
+                    ids[i] = id;
+                    weights[i] = (float) (frequency * idf / Math.sqrt(lengths[id]));
+                    i++;
+                }
+            }
+            postingIds.put(term.getKey(), ids);
+            postingWeights.put(term.getKey(), weights);
+        }
+    }
+
+    /**
+     * Finds the injuries that best match a free-text query.
+     * @param query What the athlete feels, e.g. "pain when jumping"
+     * @param limit Maximum number of results
+     * @return Matching injuries, best match first; empty if no term matches
+     */
+    public List<Injury> search(String query, int limit) {
+        float[] scores = new float[injuries.length];
+        int matched = 0;
+        for (String term : tokenize(query)) {
+            int[] ids = postingIds.get(term);
+            if (ids == null) {
+                continue;
+            }
+            float[] weights = postingWeights.get(term);
+            for (int i = 0; i < ids.length; i++) {
+                if (scores[ids[i]] == 0) {
+                    matched++;
+                }
+                scores[ids[i]] += weights[i];
+            }
+        }
+
+        Integer[] hits = new Integer[matched];
+        int n = 0;
+        for (int id = 0; id < scores.length; id++) {
+            if (scores[id] > 0) {
+                hits[n++] = id;
+            }
+        }
+        // Ties keep catalog order (the sort is stable)
+        Arrays.sort(hits, Comparator.comparingDouble((Integer id) -> -scores[id]));
+
+        List<Injury> result = new ArrayList<>(Math.min(limit, hits.length));
+        for (int i = 0; i < hits.length && i < limit; i++) {
+            result.add(injuries[hits[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Splits text into lowercase, stemmed terms, dropping stop words and
+     * single letters (the "t" of "can't").
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (word.length() > 1 && !STOP_WORDS.contains(word)) {
+                terms.add(stem(word));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Strips a few common English suffixes so that "jumping", "jumps" and
+     * "jump" index to the same term. Deliberately crude: it only has to be
+     * consistent between the catalog and queries.
+     */
+    private static String stem(String word) {
+        String stem = word;
+        if (word.length() > 5 && word.endsWith("ing")) {
+            stem = word.substring(0, word.length() - 3);
+        } else if (word.length() > 4 && word.endsWith("ed")) {
+            stem = word.substring(0, word.length() - 2);
+        } else if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("is")) {
+            stem = word.substring(0, word.length() - 1);
+        }
+        // "running" -> "runn" -> "run"
+        int last = stem.length() - 1;
+        if (stem != word && last > 1 && stem.charAt(last) == stem.charAt(last - 1) && "lsz".indexOf(stem.charAt(last)) < 0) {
+            stem = stem.substring(0, last);
+        }
+        return stem;
+    }
+
+    private static int count(Map<String, Map<Integer, Integer>> frequencies, int id, List<String> terms, int weight) {
+        for (String term : terms) {
+            frequencies.computeIfAbsent(term, t -> new HashMap<>()).merge(id, weight, Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+}
@@ -0,0 +1,221 @@
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One doctor's weekly working hours and variable-length appointments, as
+ * half-open minute-of-week intervals [start, end). Minute 0 is Monday 00:00
+ * and MINUTES_PER_WEEK - 1 is Sunday 23:59 (see minuteOfWeek()).
+ *
+ * Both working hours and bookings are kept in TreeMaps keyed by start
+ * minute, and neither map holds overlapping intervals. A new interval
+ * overlaps a booking only if the booking starting at or before it runs
+ * past its start (floorEntry) or the next booking starts before its end
+ * (ceilingEntry), so conflict checks are O(log n) however dense the
+ * calendar gets.
+ *
+ * Bookings should be made through Appointment.bookInterval(), which also
+ * holds the fixed TIMES slots an interval overlaps, so the two kinds of
+ * booking never overlap each other.
+ *
+ * Rationale: Four fixed display times cannot fit a 20-minute follow-up
+ * next to a 60-minute ACL assessment. Storing real intervals lets any
+ * length be booked, and the sorted maps keep the check logarithmic where
+ * comparing against every appointment would not be.
+ */
+class IntervalSchedule {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    /** Working blocks: start minute -> end minute */
+    private final TreeMap<Integer, Integer> workingHours = new TreeMap<>();
+    /** Bookings by start minute */
+    private final TreeMap<Integer, Booking> bookings = new TreeMap<>();
+
+    /**
+     * A booked interval.
+     */
+    public static class Booking {
+        private final int start;
+        private final int end;
+        private final Patient patient;
+        private final String description;
+
+        Booking(int start, int end, Patient patient, String description) {
+            this.start = start;
+            this.end = end;
+            this.patient = patient;
+            this.description = description;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public int getDurationMinutes() {
+            return end - start;
+        }
+
+        public Patient getPatient() {
+            return patient;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String toString() {
+            return formatMinute(start) + " - " + formatMinute(end);
+        }
+    }
+
+    /**
+     * Converts a day and time of day to a minute of the week.
+     */
+    public static int minuteOfWeek(DayOfWeek day, int hour, int minute) {
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            throw new IllegalArgumentException("Invalid time " + hour + ":" + minute);
+        }
+        return (day.getValue() - 1) * MINUTES_PER_DAY + hour * 60 + minute;
+    }
+
+    /**
+     * Formats a minute of the week, e.g. "Tuesday 16:30".
+     */
+    public static String formatMinute(int minuteOfWeek) {
+        DayOfWeek day = DayOfWeek.of(minuteOfWeek / MINUTES_PER_DAY % 7 + 1);
+        int ofDay = minuteOfWeek % MINUTES_PER_DAY;
+        String name = day.name().charAt(0) + day.name().substring(1).toLowerCase();
+        return String.format("%s %02d:%02d", name, ofDay / 60, ofDay % 60);
+    }
+
+    /**
+     * Adds a working block. Blocks may not overlap each other.
+     * @throws IllegalArgumentException if the block is empty, leaves the week or overlaps another block
+     */
+    public synchronized void addWorkingHours(int start, int end) {
+        checkInterval(start, end);
+        if (overlaps(workingHours, start, end)) {
+            throw new IllegalArgumentException("Working hours " + formatMinute(start) + " - " + formatMinute(end) + " overlap an existing block");
+        }
+        workingHours.put(start, end);
+    }
+
+    /**
+     * Books [start, start + durationMinutes) if it lies inside one working
+     * block and does not overlap another booking.
+     * @return The booking, or null if the interval conflicts with a booking
+     * @throws IllegalArgumentException if the interval is invalid or outside working hours
+     */
+    public synchronized Booking tryBook(int start, int durationMinutes, Patient patient, String description) {
+        int end = start + durationMinutes;
+        checkInterval(start, end);
+        Map.Entry<Integer, Integer> block = workingHours.floorEntry(start);
+        if (block == null || block.getValue() < end) {
+            throw new IllegalArgumentException(formatMinute(start) + " for " + durationMinutes + " minutes is outside working hours");
+        }
+        if (conflicts(start, end)) {
+            return null;
+        }
+        Booking booking = new Booking(start, end, patient, description);
+        bookings.put(start, booking);
+        return booking;
+    }
+
+    /**
+     * Checks in O(log n) whether [start, end) overlaps an existing booking.
+     */
+    public synchronized boolean conflicts(int start, int end) {
+        Map.Entry<Integer, Booking> before = bookings.floorEntry(start);
+        if (before != null && before.getValue().end > start) {
+            return true;
+        }
+        Map.Entry<Integer, Booking> after = bookings.ceilingEntry(start);
+        return after != null && after.getKey() < end;
+    }
+
+    /**
+     * Cancels the booking that starts at the given minute.
+     * @return The cancelled booking, or null if none starts there
+     */
+    public synchronized Booking cancel(int start) {
+        return bookings.remove(start);
+    }
+
+    /**
+     * Cancels a booking if it is still in the schedule.
+     * @return true if this call removed it
+     */
+    public synchronized boolean cancel(Booking booking) {
+        return bookings.remove(booking.start, booking);
+    }
+
+    /**
+     * Finds the earliest start at or after fromMinute where an appointment of
+     * the given length fits, walking working blocks and the gaps between
+     * bookings in order.
+     * @return The start minute, or -1 if nothing fits before the end of the week
+     */
+    public synchronized int findFirstFit(int durationMinutes, int fromMinute) {
+        Map.Entry<Integer, Integer> first = workingHours.floorEntry(fromMinute);
+        Integer blockStart = first != null && first.getValue() > fromMinute ? first.getKey() : workingHours.ceilingKey(fromMinute);
+        while (blockStart != null) {
+            int blockEnd = workingHours.get(blockStart);
+            int candidate = Math.max(blockStart, fromMinute);
+            Map.Entry<Integer, Booking> before = bookings.floorEntry(candidate);
+            if (before != null && before.getValue().end > candidate) {
+                candidate = before.getValue().end;
+            }
+            for (Booking next : bookings.tailMap(candidate, true).values()) {
+                if (next.start >= blockEnd || next.start - candidate >= durationMinutes) {
+                    break;
+                }
+                candidate = Math.max(candidate, next.end);
+            }
+            if (candidate + durationMinutes <= blockEnd) {
+                return candidate;
+            }
+            blockStart = workingHours.higherKey(blockStart);
+        }
+        return -1;
+    }
+
+    /**
+     * Lists bookings that overlap [from, to), in start order.
+     */
+    public synchronized List<Booking> bookingsBetween(int from, int to) {
+        List<Booking> result = new ArrayList<>();
+        Map.Entry<Integer, Booking> before = bookings.lowerEntry(from);
+        if (before != null && before.getValue().end > from) {
+            result.add(before.getValue());
+        }
+        result.addAll(bookings.subMap(from, true, to, false).values());
+        return result;
+    }
+
+    public synchronized int size() {
+        return bookings.size();
+    }
+
+    private static boolean overlaps(TreeMap<Integer, Integer> intervals, int start, int end) {
+        Map.Entry<Integer, Integer> before = intervals.floorEntry(start);
+        if (before != null && before.getValue() > start) {
+            return true;
+        }
+        Integer after = intervals.ceilingKey(start);
+        return after != null && after < end;
+    }
+
+    private static void checkInterval(int start, int end) {
+        if (start < 0 || end > MINUTES_PER_WEEK || end <= start) {
+            throw new IllegalArgumentException("Invalid interval " + start + " - " + end);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures IntervalSchedule's O(log n) conflict check on dense calendars,
+ * next to the linear scan over every booking that it avoids:
+ *   tree - IntervalSchedule.conflicts() (floorEntry/ceilingEntry)
+ *   scan - testing the interval against each booking in a list
+ *
+ * For each size one doctor works the whole week and is booked with that
+ * many short appointments spread evenly across it (1 to stride minutes
+ * long, with gaps), so the week is nearly full. Queries are random
+ * intervals up to one stride long, so some fit a gap and some conflict;
+ * a query that fits makes the scan visit every booking. Figures are ns
+ * per check (best of the timed rounds); the scan runs fewer queries, since
+ * each one may visit every booking.
+ * Usage: java IntervalScheduleBenchmark [queries] [bookings...]
+ */
+class IntervalScheduleBenchmark {
+    private static final int ROUNDS = 5;
+    /** Bookings visited per size by the scan, to bound its running time */
+    private static final long SCAN_BUDGET = 200_000_000L;
+
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            sizes.add(Integer.parseInt(args[i]));
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(1_000);
+            sizes.add(2_500);
+            sizes.add(5_000);
+        }
+
+        Random random = new Random(42);
+        boolean passed = true;
+        System.out.printf("%10s %12s %12s %12s   (ns/check, %d queries)%n", "bookings", "tree", "scan", "conflicts", queries);
+        for (int size : sizes) {
+            if (size < 1 || size > IntervalSchedule.MINUTES_PER_WEEK / 2) {
+                System.out.println(size + " bookings skipped: must be between 1 and " + IntervalSchedule.MINUTES_PER_WEEK / 2);
+                continue;
+            }
+            IntervalSchedule schedule = new IntervalSchedule();
+            schedule.addWorkingHours(0, IntervalSchedule.MINUTES_PER_WEEK);
+            int stride = IntervalSchedule.MINUTES_PER_WEEK / size;
+            for (int i = 0; i < size; i++) {
+                int duration = 1 + random.nextInt(stride - 1);
+                schedule.tryBook(i * stride, duration, null, "Follow-up");
+            }
+            List<IntervalSchedule.Booking> list = schedule.bookingsBetween(0, IntervalSchedule.MINUTES_PER_WEEK);
+
+            int[] starts = new int[queries];
+            int[] ends = new int[queries];
+            for (int i = 0; i < queries; i++) {
+                starts[i] = random.nextInt(IntervalSchedule.MINUTES_PER_WEEK - stride);
+                ends[i] = starts[i] + 1 + random.nextInt(stride);
+            }
+
+            long treeBest = Long.MAX_VALUE;
+            int treeConflicts = 0;
+            for (int round = 0; round < ROUNDS + 2; round++) {
+                long start = System.nanoTime();
+                int conflicts = 0;
+                for (int i = 0; i < queries; i++) {
+                    if (schedule.conflicts(starts[i], ends[i])) {
+                        conflicts++;
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                if (round >= 2) {
+                    treeBest = Math.min(treeBest, elapsed);
+                }
+                treeConflicts = conflicts;
+            }
+
+            int scans = (int) Math.max(100, Math.min(queries, SCAN_BUDGET / size));
+            long scanBest = Long.MAX_VALUE;
+            int scanConflicts = 0;
+            for (int round = 0; round < ROUNDS + 2; round++) {
+                long start = System.nanoTime();
+                int conflicts = 0;
+                for (int i = 0; i < scans; i++) {
+                    if (scanConflicts(list, starts[i], ends[i])) {
+                        conflicts++;
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                if (round >= 2) {
+                    scanBest = Math.min(scanBest, elapsed);
+                }
+                scanConflicts = conflicts;
+            }
+
+            int treeOnScanned = 0;
+            for (int i = 0; i < scans; i++) {
+                if (schedule.conflicts(starts[i], ends[i])) {
+                    treeOnScanned++;
+                }
+            }
+            System.out.printf("%10d %12.1f %12.1f %11.0f%%%n", schedule.size(),
+                    treeBest / (double) queries, scanBest / (double) scans, 100.0 * treeConflicts / queries);
+            if (treeOnScanned != scanConflicts) {
+                System.out.println("FAILED: tree found " + treeOnScanned + " conflicts, scan found "
+                        + scanConflicts + " in the same " + scans + " queries");
+                passed = false;
+            }
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * The check without an interval structure: compare with every booking.
+     */
+    private static boolean scanConflicts(List<IntervalSchedule.Booking> bookings, int start, int end) {
+        for (IntervalSchedule.Booking booking : bookings) {
+            if (booking.getStart() < end && start < booking.getEnd()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,178 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * PatientRepository backed by an embedded SQL database through JDBC,
+ * e.g. H2 ("jdbc:h2:./accounts") or SQLite ("jdbc:sqlite:accounts.db")
+ * in file mode. The driver jar must be on the classpath at runtime; tested
+ * with h2 2.2.224 and sqlite-jdbc 3.44.1.0 (which also needs slf4j-api).
+ * Call close() on shutdown to release the connection.
+ *
+ * Accounts live in one table whose primary key is the username, so
+ * find/contains are indexed lookups and save() touches only the given rows.
+ * Upserts are written as UPDATE-then-INSERT so they work on any SQL dialect.
+ *
+ * Database errors are thrown as IllegalStateException (after rolling back
+ * a failed save), so a failed read is never mistaken for a missing account
+ * and a failed save never looks durable; reporting them is up to the caller.
+ */
+class JdbcPatientRepository implements PatientRepository {
+    private static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS patients ("
+            + "username VARCHAR(255) PRIMARY KEY, password VARCHAR(255) NOT NULL, name VARCHAR(255), "
+            + "age INT, gender BOOLEAN, contact_no VARCHAR(64), address VARCHAR(1024))";
+    private static final String COLUMNS = "username, password, name, age, gender, contact_no, address";
+
+    private final Connection connection;
+
+    /**
+     * Opens the database and creates the patients table if needed.
+     * @param url JDBC URL of the embedded database
+     * @throws IllegalStateException if the database cannot be opened
+     */
+    public JdbcPatientRepository(String url) {
+        try {
+            connection = DriverManager.getConnection(url);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_TABLE);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error opening account database " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized List<Patient> loadAll() {
+        List<Patient> patients = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT " + COLUMNS + " FROM patients")) {
+            while (rows.next()) {
+                patients.add(toPatient(rows));
+            }
+        } catch (SQLException e) {
+            throw readFailed(e);
+        }
+        return patients;
+    }
+
+    @Override
+    public synchronized Patient find(String username) {
+        try (PreparedStatement query = connection.prepareStatement("SELECT " + COLUMNS + " FROM patients WHERE username = ?")) {
+            query.setString(1, username);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next() ? toPatient(rows) : null;
+            }
+        } catch (SQLException e) {
+            throw readFailed(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean contains(String username) {
+        try (PreparedStatement query = connection.prepareStatement("SELECT 1 FROM patients WHERE username = ?")) {
+            query.setString(1, username);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next();
+            }
+        } catch (SQLException e) {
+            throw readFailed(e);
+        }
+    }
+
+    @Override
+    public synchronized void forEachSummary(BiConsumer<String, String> consumer) {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT username, name FROM patients")) {
+            while (rows.next()) {
+                consumer.accept(rows.getString(1), rows.getString(2));
+            }
+        } catch (SQLException e) {
+            throw readFailed(e);
+        }
+    }
+
+    /**
+     * Upserts the given accounts in one transaction.
+     * @throws IllegalStateException if the transaction failed; it is rolled back
+     */
+    @Override
+    public synchronized void save(Collection<Patient> patients) {
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE patients SET password = ?, name = ?, age = ?, gender = ?, contact_no = ?, address = ? WHERE username = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO patients (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            for (Patient patient : patients) {
+                update.setString(1, patient.getPassword());
+                update.setString(2, patient.getName());
+                update.setInt(3, patient.getAge());
+                update.setBoolean(4, patient.isGender());
+                update.setString(5, patient.getContact_no());
+                update.setString(6, patient.getAddress());
+                update.setString(7, patient.getUsername());
+                if (update.executeUpdate() == 0) {
+                    insert.setString(1, patient.getUsername());
+                    insert.setString(2, patient.getPassword());
+                    insert.setString(3, patient.getName());
+                    insert.setInt(4, patient.getAge());
+                    insert.setBoolean(5, patient.isGender());
+                    insert.setString(6, patient.getContact_no());
+                    insert.setString(7, patient.getAddress());
+                    insert.executeUpdate();
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            throw new IllegalStateException("Account database write failed: " + e.getMessage(), e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
+                // Connection is unusable; the next call will report it
+            }
+        }
+    }
+
+    /**
+     * Closes the database connection. Embedded databases flush and release
+     * their file lock here.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing account database: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The database needs no consolidation, so this is the same as save().
+     */
+    @Override
+    public void saveAll(Collection<Patient> patients) {
+        save(patients);
+    }
+
+    private static IllegalStateException readFailed(SQLException e) {
+        return new IllegalStateException("Account database read failed: " + e.getMessage(), e);
+    }
+
+    private static Patient toPatient(ResultSet row) throws SQLException {
+        return new Patient(row.getString(1), row.getString(2), row.getString(3), row.getInt(4),
+                row.getBoolean(5), row.getString(6), row.getString(7));
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Username-to-file-offset index over the accounts base file.
+ * Patients are parsed from the file only when they are first requested,
+ * and the most recently used ones are kept in a bounded LRU cache.
+ *
+ * Rationale: A session only ever touches one or two accounts, so parsing
+ * every record into a Patient at startup wastes time and heap. Keeping
+ * just the username and the byte offset of its line is enough to find
+ * and hydrate the record on demand.
+ */
+class LazyPatientIndex {
+    private final String fileName;
+    private final Map<String, Patient> cache;
+    private Map<String, Long> offsets = new HashMap<>();
+
+    /**
+     * Creates an empty index for the given file; call rebuild() to fill it.
+     * @param fileName The accounts base file
+     * @param cacheCapacity Maximum number of hydrated patients kept in memory
+     */
+    public LazyPatientIndex(String fileName, int cacheCapacity) {
+        this.fileName = fileName;
+        this.cache = new LinkedHashMap<String, Patient>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Patient> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    /**
+     * Rescans the file and rebuilds the offset index. Called at startup and
+     * after the base file has been rewritten. Clears the cache, since cached
+     * records may no longer match the file.
+     * @param onRecord Called with the username and name of every indexed
+     *                 record (used to feed the search index); may be null
+     */
+    public synchronized void rebuild(BiConsumer<String, String> onRecord) {
+        rebuildFrom(fileName, onRecord);
+    }
+
+    /**
+     * Like rebuild(), but scans another file that is about to replace this
+     * index's file (e.g. a compacted copy before it is renamed into place).
+     * Offsets are the same in both, and records are still read from fileName.
+     */
+    public synchronized void rebuildFrom(String source, BiConsumer<String, String> onRecord) {
+        Map<String, Long> rebuilt = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(Paths.get(source), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(Integer.MAX_VALUE, size - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int lineStart = 0;
+                int lastLineEnd = 0;
+                for (int i = 0; i < region.limit(); i++) {
+                    if (region.get(i) == '\n') {
+                        indexLine(region, lineStart, i, position, rebuilt, onRecord);
+                        lineStart = i + 1;
+                        lastLineEnd = i + 1;
+                    }
+                }
+                if (position + length == size && lineStart < region.limit()) {
+                    indexLine(region, lineStart, region.limit(), position, rebuilt, onRecord);
+                    lastLineEnd = region.limit();
+                }
+                position += lastLineEnd == 0 ? length : lastLineEnd;
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading users: " + e.getMessage());
+        }
+        offsets = rebuilt;
+        cache.clear();
+    }
+
+    /**
+     * Records the offset of one line, keyed by the username before the first comma,
+     * and reports the username and name (third field, if present) to the listener.
+     * Later lines for the same username replace earlier ones.
+     */
+    private static void indexLine(MappedByteBuffer region, int start, int end, long base,
+                                  Map<String, Long> into, BiConsumer<String, String> onRecord) {
+        int[] commas = new int[3];
+        int found = 0;
+        for (int i = start; i < end && found < 3; i++) {
+            if (region.get(i) == ',') {
+                commas[found++] = i;
+            }
+        }
+        if (found == 0 || commas[0] == start) {
+            return;
+        }
+        String username = decode(region, start, commas[0]);
+        into.put(username, base + start);
+        if (onRecord == null) {
+            return;
+        }
+        if (found >= 2) {
+            int nameEnd = found == 3 ? commas[2] : end;
+            onRecord.accept(username, decode(region, commas[1] + 1, nameEnd));
+        } else {
+            onRecord.accept(username, null);
+        }
+    }
+
+    private static String decode(MappedByteBuffer region, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        region.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks whether the file holds a record for the username, without parsing it.
+     */
+    public synchronized boolean contains(String username) {
+        return offsets.containsKey(username);
+    }
+
+    /**
+     * Number of indexed accounts.
+     */
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    /**
+     * Returns the patient stored in the file for this username, parsing its
+     * line on first access and serving later calls from the LRU cache.
+     * @return The hydrated Patient, or null if the username is not in the file
+     */
+    public synchronized Patient get(String username) {
+        Patient cached = cache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        Long offset = offsets.get(username);
+        if (offset == null) {
+            return null;
+        }
+        Patient patient = TextFilePatientRepository.parseRecord(readLineAt(offset));
+        if (patient != null) {
+            cache.put(username, patient);
+        }
+        return patient;
+    }
+
+    /**
+     * Reads the single line starting at the given byte offset.
+     */
+    private String readLineAt(long offset) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            while (true) {
+                int read = channel.read(buffer, offset + buffer.position());
+                for (int i = 0; i < buffer.position(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        return trimLine(buffer, i);
+                    }
+                }
+                if (read <= 0) {
+                    return trimLine(buffer, buffer.position());
+                }
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading user: " + e.getMessage());
+            return "";
+        }
+    }
+
+    private static String trimLine(ByteBuffer buffer, int end) {
+        if (end > 0 && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        return new String(buffer.array(), 0, end, StandardCharsets.UTF_8);
+    }
+}
@@ -1,12 +1,18 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
 
 public class Main {
     private static Scanner scanner = new Scanner(System.in);
     private static AccountManager accountManager = new AccountManager();
     public static void main(String[] args) {
         System.out.println("=== Welcome to Sports Injury Management System ===\n");
+        Appointment.setPatientLookup(accountManager::getUser);
+        // Only a new or uncleanly closed calendar is rebuilt from the reservations
+        if (Appointment.calendarNeedsRecovery()) {
+            System.out.println(Appointment.verifyCalendar(accountManager.loadAllReservations()));
+        }
 
         while (true) {
             Patient patient = handleAuthentication();
@@ -14,6 +20,7 @@ public class Main {
                 continue;
             }
 
+            manageReservations(patient);
             patient = collectPatientInformation(patient);
             Sport selectedSport = processMedicalData(patient);
             generateAndSaveReport(patient, selectedSport);
@@ -21,11 +28,16 @@ public class Main {
             if (!askToContinue()) {
                 break;
             }
+        }
 
+        accountManager.flush();
+        try {
             accountManager.saveAllUsers();
+        } catch (RuntimeException e) {
+            System.out.println("Error saving users: " + e.getMessage());
         }
-
-        accountManager.saveAllUsers();
+        accountManager.close();
+        Appointment.closeCalendar();
         scanner.close();
         System.out.println("\nThank you for using Sports Injury Management System!");
     }
@@ -62,9 +74,18 @@ public class Main {
             return null;
         }
 
-        Patient patient = new Patient(username, password);
-        accountManager.saveUser(patient);
-        accountManager.saveAllUsers();
+        Patient patient;
+        try {
+            patient = accountManager.reserveUsername(username, password);
+        } catch (RejectedExecutionException e) {
+            System.out.println("Sign up rejected: " + e.getMessage() + "\n");
+            return null;
+        }
+        if (patient == null) {
+            System.out.println("Username '" + username + "' was just taken. Please try again.\n");
+            return null;
+        }
+        accountManager.persistLater(patient);
 
         System.out.println("\nAccount created successfully!");
         System.out.println("Welcome, " + username + "!\n");
@@ -154,7 +175,7 @@ public class Main {
                 // Update patient details while preserving reservations, reports, and injuries
                 patient = patient.updateDetails(name, age, gender, contactNo, address);
                 accountManager.updateUser(patient);
-                accountManager.saveAllUsers();
+                accountManager.persistLater(patient);
                 
                 System.out.println("\nPatient information saved successfully!\n");
                 break;
@@ -170,7 +191,39 @@ public class Main {
         return patient;
     }
 
-    
+
+    /**
+     * Lists the patient's reservations, including those from earlier
+     * sessions, and lets them cancel one. A freed slot goes to the first
+     * patient on its waitlist.
+     */
+    private static void manageReservations(Patient patient) {
+        Patient account = accountManager.getUser(patient.getUsername());
+        List<Appointment> reservations = new ArrayList<>((account != null ? account : patient).getReservations());
+        if (reservations.isEmpty()) {
+            return;
+        }
+        System.out.println("=== Your Appointments ===");
+        for (int i = 0; i < reservations.size(); i++) {
+            System.out.println((i + 1) + ". " + reservations.get(i));
+        }
+        int choice;
+        do {
+            System.out.print("Enter the number of an appointment to cancel, or 0 to keep them all: ");
+            choice = getValidInteger(0, reservations.size());
+        } while (choice < 0);
+        if (choice == 0) {
+            System.out.println();
+            return;
+        }
+        try {
+            Appointment.cancelAppointment(reservations.get(choice - 1));
+            System.out.println("Appointment cancelled.\n");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error cancelling appointment: " + e.getMessage() + "\n");
+        }
+    }
+
     private static void generateAndSaveReport(Patient patient, Sport selectedSport) {
         if (patient.getInjuries().isEmpty() || patient.getReservations().isEmpty()) {
             System.out.println("Cannot generate report: Missing injury or appointment data.");
@@ -193,14 +246,19 @@ public class Main {
         Sport selectedSport = chooseSport();
         System.out.println("Selected sport: " + selectedSport.getName() + "\n");
 
-        BodyPart chosenPart = chooseBodyPart();
-        Injury injury = chooseInjury(chosenPart);
+        Injury injury = chooseInjuryBySymptoms();
+        if (injury == null) {
+            BodyPart chosenPart = chooseBodyPart();
+            injury = chooseInjury(chosenPart);
+        }
         patient.addInjury(injury);
         System.out.println("Selected injury: " + injury.getType() + "\n");
 
         Appointment appointment = Appointment.createAppointment(patient);
-        patient.addReservation(appointment);
-        System.out.println("Appointment scheduled successfully!\n");
+        if (appointment != null) {
+            patient.addReservation(appointment);
+            System.out.println("Appointment scheduled successfully!\n");
+        }
 
         return selectedSport;
     }
@@ -238,6 +296,42 @@ public class Main {
         return parts[choice - 1];
     }
 
+    /**
+     * Lets the athlete describe what they feel and pick from the closest
+     * matching injuries.
+     * @return The chosen injury, or null to browse by body part instead
+     */
+    private static Injury chooseInjuryBySymptoms() {
+        System.out.println("=== Describe Your Symptoms ===");
+        System.out.print("What do you feel? (e.g. \"pain when jumping\", leave empty to browse by body part): ");
+        String query = scanner.nextLine().trim();
+        if (query.isEmpty()) {
+            return null;
+        }
+
+        List<Injury> matches = InjurySearchIndex.CATALOG.search(query, 5);
+        if (matches.isEmpty()) {
+            System.out.println("No injury matches \"" + query + "\". Please choose by body part.\n");
+            return null;
+        }
+
+        System.out.println("\n=== Closest Matches ===");
+        for (int i = 0; i < matches.size(); i++) {
+            Injury injury = matches.get(i);
+            System.out.println((i + 1) + ". " + injury.getType() + " (" + injury.getBodyPart() + ")");
+            System.out.println("   Description: " + injury.getAthleteDescription() + "\n");
+        }
+        System.out.println("0. None of these, browse by body part");
+
+        int choice;
+        do {
+            System.out.print("Enter the number of the injury (0-" + matches.size() + "): ");
+            choice = getValidInteger(0, matches.size());
+        } while (choice < 0 || choice > matches.size());
+
+        return choice == 0 ? null : matches.get(choice - 1);
+    }
+
     private static Injury chooseInjury(BodyPart part) {
         List<Injury> filtered = Injury.getInjuriesByBodyPart(part);
         System.out.println("\n=== Choose Injury ===");
@@ -2,7 +2,11 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 
 
@@ -25,6 +29,16 @@ public class MainGUI {
 
     public MainGUI() {
         accountManager = new AccountManager();
+        Appointment.setPatientLookup(accountManager::getUser);
+        // Pending write-behind updates must reach disk before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            accountManager.close();
+            Appointment.closeCalendar();
+        }, "accounts-flush"));
+        // Only a new or uncleanly closed calendar is rebuilt from the reservations
+        if (Appointment.calendarNeedsRecovery()) {
+            System.out.println(Appointment.verifyCalendar(accountManager.loadAllReservations()));
+        }
         frame = new JFrame("Sports Injury Management System");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(720, 560);
@@ -76,15 +90,40 @@ public class MainGUI {
                 return;
             }
 
-            if (accountManager.isUsernameTaken(username)) {
-                JOptionPane.showMessageDialog(frame, "Username is already taken. Please try another.", "Error", JOptionPane.ERROR_MESSAGE);
-            } else {
-                Patient user = new Patient(username, password);
-                accountManager.saveUser(user);
-                accountManager.saveAllUsers();
-                JOptionPane.showMessageDialog(frame, "Account created successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                initializeGUI();
-            }
+            // Hashing the password takes a noticeable moment; keep it off the event dispatch thread
+            JButton source = (JButton) e.getSource();
+            source.setEnabled(false);
+            new SwingWorker<Patient, Void>() {
+                @Override
+                protected Patient doInBackground() {
+                    return accountManager.reserveUsername(username, password);
+                }
+
+                @Override
+                protected void done() {
+                    source.setEnabled(true);
+                    Patient user;
+                    try {
+                        user = get();
+                    } catch (InterruptedException ex) {
+                        JOptionPane.showMessageDialog(frame, "Error creating account: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    } catch (ExecutionException ex) {
+                        // A saturated worker pool is not an error in the account; just ask to retry
+                        String message = ex.getCause() instanceof RejectedExecutionException
+                                ? ex.getCause().getMessage() : "Error creating account: " + ex.getCause().getMessage();
+                        JOptionPane.showMessageDialog(frame, message, "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    if (user == null) {
+                        JOptionPane.showMessageDialog(frame, "Username is already taken. Please try another.", "Error", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        accountManager.persistLater(user);
+                        JOptionPane.showMessageDialog(frame, "Account created successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        initializeGUI();
+                    }
+                }
+            }.execute();
         });
 
         JPanel actions = createActionsPanel();
@@ -113,13 +152,34 @@ public class MainGUI {
                 return;
             }
 
-            if (accountManager.validateUser(username, password)) {
-                currentUser = accountManager.getUser(username);
-                JOptionPane.showMessageDialog(frame, "Login successful! Welcome back, " + username + "!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                openUserDashboard();
-            } else {
-                JOptionPane.showMessageDialog(frame, "Invalid username or password. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            // Password verification runs a slow hash; keep it off the event dispatch thread
+            JButton source = (JButton) e.getSource();
+            source.setEnabled(false);
+            new SwingWorker<Patient, Void>() {
+                @Override
+                protected Patient doInBackground() {
+                    return accountManager.validateUser(username, password) ? accountManager.getUser(username) : null;
+                }
+
+                @Override
+                protected void done() {
+                    source.setEnabled(true);
+                    Patient user;
+                    try {
+                        user = get();
+                    } catch (InterruptedException | ExecutionException ex) {
+                        JOptionPane.showMessageDialog(frame, "Error logging in: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    if (user != null) {
+                        currentUser = user;
+                        JOptionPane.showMessageDialog(frame, "Login successful! Welcome back, " + username + "!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        openUserDashboard();
+                    } else {
+                        JOptionPane.showMessageDialog(frame, "Invalid username or password. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }.execute();
         });
 
         JPanel actions = createActionsPanel();
@@ -156,6 +216,10 @@ public class MainGUI {
         content.add(Box.createVerticalStrut(6));
         content.add(createSecondaryButton("Schedule Appointment", e -> openAppointmentForm()));
         content.add(Box.createVerticalStrut(6));
+        if (currentUser != null && !currentAccount().getReservations().isEmpty()) {
+            content.add(createSecondaryButton("Cancel Appointment", e -> cancelAppointment()));
+            content.add(Box.createVerticalStrut(6));
+        }
         content.add(createSecondaryButton("Generate Report", e -> generateReport()));
         content.add(Box.createVerticalStrut(18));
         content.add(createSecondaryButton("Log Out", e -> {
@@ -206,7 +270,7 @@ public class MainGUI {
             }
             
             if (appointment != null) {
-                JLabel appointmentLabel = new JLabel("Appointment: " + appointment.getWeekday() + " at " + appointment.getTime());
+                JLabel appointmentLabel = new JLabel("Appointment: " + appointment);
                 appointmentLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
                 appointmentLabel.setForeground(new Color(80, 80, 80));
                 statusPanel.add(appointmentLabel);
@@ -256,7 +320,7 @@ public class MainGUI {
                 // Update patient details while preserving reservations, reports, and injuries
                 Patient updatedPatient = currentUser.updateDetails(name, age, gender, contact, address);
                 accountManager.updateUser(updatedPatient);
-                accountManager.saveAllUsers();
+                accountManager.persistLater(updatedPatient);
                 currentUser = updatedPatient;
                 
                 JOptionPane.showMessageDialog(frame, "Details saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -310,17 +374,35 @@ public class MainGUI {
                 injuriesComboBox.addItem(injury);
             }
         });
+        // Fires the listener above, which fills the injury list for the first body part
         bodyPartComboBox.setSelectedIndex(0);
 
-        List<Injury> initialInjuries = Injury.getInjuriesByBodyPart((BodyPart) bodyPartComboBox.getSelectedItem());
-        for (Injury injury : initialInjuries) {
-            injuriesComboBox.addItem(injury);
-        }
- 
+        // Searching replaces the injury list with the closest matches to the symptoms
+        JTextField symptomsField = createTextField();
+        ActionListener searchSymptoms = e -> {
+            String query = symptomsField.getText().trim();
+            if (query.isEmpty()) {
+                return;
+            }
+            List<Injury> matches = InjurySearchIndex.CATALOG.search(query, 5);
+            if (matches.isEmpty()) {
+                JOptionPane.showMessageDialog(frame, "No injury matches \"" + query + "\". Please choose by body part.", "No Matches", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            injuriesComboBox.removeAllItems();
+            for (Injury injury : matches) {
+                injuriesComboBox.addItem(injury);
+            }
+        };
+        symptomsField.addActionListener(searchSymptoms);
+
+        content.add(createHintLabel("Describe what you feel (e.g. \"pain when jumping\") or choose a body part."));
+        content.add(createLabeledField("Symptoms", symptomsField));
         content.add(createLabeledField("Body Part", bodyPartComboBox));
         content.add(createLabeledField("Injury", injuriesComboBox));
 
         JPanel actions = createActionsPanel();
+        actions.add(createSecondaryButton("Search Symptoms", searchSymptoms));
         actions.add(createPrimaryButton("Select Injury", e -> {
             selectedInjury = (Injury) injuriesComboBox.getSelectedItem();
             if (currentUser != null && selectedInjury != null) {
@@ -345,7 +427,11 @@ public class MainGUI {
 
         String[] doctors = Appointment.DOCTORS;
         JComboBox<String> doctorComboBox = new JComboBox<>(doctors);
-        JComboBox<Weekday> dayComboBox = new JComboBox<>(Weekday.values());
+        List<LocalDate> dates = Appointment.openDates();
+        JComboBox<String> dateComboBox = new JComboBox<>();
+        for (LocalDate date : dates) {
+            dateComboBox.addItem(Appointment.formatDate(date));
+        }
         String[] times = Appointment.TIMES;
         JComboBox<String> timeComboBox = new JComboBox<>(times);
         JTextArea athleteDescriptionField = new JTextArea(3, 30);
@@ -359,7 +445,7 @@ public class MainGUI {
         ));
 
         content.add(createLabeledField("Doctor", doctorComboBox));
-        content.add(createLabeledField("Day", dayComboBox));
+        content.add(createLabeledField("Date", dateComboBox));
         content.add(createLabeledField("Time", timeComboBox));
         
         JPanel descPanel = new JPanel(new BorderLayout());
@@ -373,21 +459,42 @@ public class MainGUI {
 
         JPanel actions = createActionsPanel();
         actions.add(createPrimaryButton("Schedule Appointment", e -> {
+            // Combo box indices are the doctor's scheduling id and the time's index in TIMES
+            int doctorId = doctorComboBox.getSelectedIndex();
             String doctor = (String) doctorComboBox.getSelectedItem();
-            Weekday day = (Weekday) dayComboBox.getSelectedItem();
+            LocalDate date = dates.get(dateComboBox.getSelectedIndex());
+            String day = Appointment.formatDate(date);
             String time = (String) timeComboBox.getSelectedItem();
             String athleteDescription = athleteDescriptionField.getText().trim();
 
-            if (!Appointment.isSlotFree(doctor, day, time)) {
-                JOptionPane.showMessageDialog(frame, "Selected slot is already booked for this doctor. Please choose another time.", "Unavailable", JOptionPane.WARNING_MESSAGE);
+            Appointment booked;
+            try {
+                booked = Appointment.tryBookSlot(doctorId, date, timeComboBox.getSelectedIndex(), currentUser, athleteDescription);
+            } catch (IllegalArgumentException ex) {
+                // The date left the booking horizon while the form was open
+                JOptionPane.showMessageDialog(frame, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                openAppointmentForm();
                 return;
             }
-
-            appointment = new Appointment(day, time, doctor, currentUser, athleteDescription);
-            Appointment.bookSlot(doctor, day, time);
+            if (booked != null) {
+                appointment = booked;
+            } else {
+                int choice = JOptionPane.showConfirmDialog(frame, "Selected slot is already booked for this doctor.\nBook the earliest other time with " + doctor + " on " + day + ",\nor join the waitlist if the day is full?", "Unavailable", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (choice != JOptionPane.YES_OPTION) {
+                    return;
+                }
+                booked = Appointment.bookOrWait(doctorId, date, currentUser, selectedInjury, athleteDescription);
+                if (booked == null) {
+                    JOptionPane.showMessageDialog(frame, "All times with " + doctor + " on " + day + " are booked.\nYou are on the waitlist and will get the first slot that is cancelled.", "Waitlisted", JOptionPane.INFORMATION_MESSAGE);
+                    openUserDashboard();
+                    return;
+                }
+                appointment = booked;
+                time = booked.getTime();
+            }
             currentUser.addReservation(appointment);
             accountManager.updateUser(currentUser);
-            accountManager.saveAllUsers();
+            accountManager.persistLater(currentUser);
 
             JOptionPane.showMessageDialog(frame, "Appointment scheduled successfully!\nDoctor: " + doctor + "\nDay: " + day + "\nTime: " + time, "Appointment Scheduled", JOptionPane.INFORMATION_MESSAGE);
             openUserDashboard();
@@ -398,6 +505,39 @@ public class MainGUI {
         swapContent(content);
     }
 
+    /**
+     * The logged-in account as stored, with every persisted reservation.
+     */
+    private Patient currentAccount() {
+        Patient account = accountManager.getUser(currentUser.getUsername());
+        return account != null ? account : currentUser;
+    }
+
+    private void cancelAppointment() {
+        List<Appointment> reservations = new ArrayList<>(currentAccount().getReservations());
+        if (reservations.isEmpty()) {
+            openUserDashboard();
+            return;
+        }
+        JComboBox<Appointment> reservationComboBox = new JComboBox<>(reservations.toArray(new Appointment[0]));
+        int choice = JOptionPane.showConfirmDialog(frame, new Object[] {"Choose the appointment to cancel:", reservationComboBox}, "Cancel Appointment", JOptionPane.OK_CANCEL_OPTION);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        Appointment cancelled = (Appointment) reservationComboBox.getSelectedItem();
+        try {
+            Appointment.cancelAppointment(cancelled);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(frame, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (appointment != null && appointment.isSameSlot(cancelled)) {
+            appointment = null;
+        }
+        JOptionPane.showMessageDialog(frame, "Your appointment has been cancelled.", "Appointment Cancelled", JOptionPane.INFORMATION_MESSAGE);
+        openUserDashboard();
+    }
+
     private void generateReport() {
         if (currentUser == null) {
             JOptionPane.showMessageDialog(frame, "Please log in first.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -444,7 +584,7 @@ public class MainGUI {
             
             currentUser.addReport("Report generated for injury: " + selectedInjury.getType());
             accountManager.updateUser(currentUser);
-            accountManager.saveAllUsers();
+            accountManager.persistLater(currentUser);
         }
 
         if (appointment != null) {
@@ -9,8 +9,13 @@
  * - Has multiple Appointments (reservations) - tracks scheduled appointments
  * - Has multiple Reports (reports) - stores generated medical reports
  * - Has multiple Injuries (injuries) - maintains injury history
+ *
+ * When a PatientHistoryStore is attached, the three lists are loaded from it
+ * the first time any of them is read, and every add* call appends the new
+ * item to the patient's history segment.
  */
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 class Patient extends Person {
@@ -19,6 +24,8 @@ class Patient extends Person {
     private final List<Appointment> reservations = new ArrayList<>();
     private final List<String> reports = new ArrayList<>();
     private final List<Injury> injuries = new ArrayList<>();
+    private PatientHistoryStore historyStore;
+    private boolean historyLoaded = true;
 
     /**
      * Constructs a Patient with full personal and account information.
@@ -50,14 +57,38 @@ class Patient extends Person {
     }
 
     /**
-     * Retrieves the patient's password.
-     * Note: In production, passwords should be hashed, not stored in plain text.
-     * @return The password used for authentication
+     * Retrieves the patient's stored password.
+     * Accounts created or logged into since hashing was introduced hold a
+     * salted hash (see AuthenticationService); older ones hold plain text.
+     * @return The stored password or password hash
      */
     public String getPassword() {
         return password;
     }
 
+    /**
+     * Attaches the store that persists this patient's history.
+     * The lists are read from it lazily, on first access.
+     * Has no effect if a store is already attached.
+     */
+    public synchronized void attachHistory(PatientHistoryStore store) {
+        if (historyStore == null && store != null) {
+            historyStore = store;
+            historyLoaded = false;
+        }
+    }
+
+    /**
+     * Loads injuries, reservations and reports from the attached store
+     * the first time any of them is needed.
+     */
+    private synchronized void ensureHistoryLoaded() {
+        if (!historyLoaded) {
+            historyLoaded = true;
+            historyStore.load(this, injuries, reservations, reports);
+        }
+    }
+
 
     /**
      * Retrieves the list of appointments (reservations) for this patient.
@@ -66,6 +97,7 @@ class Patient extends Person {
      * @return A list of Appointment objects representing scheduled appointments
      */
     public List<Appointment> getReservations() {
+        ensureHistoryLoaded();
         return reservations;
     }
 
@@ -76,6 +108,7 @@ class Patient extends Person {
      * @return A list of String objects representing medical reports
      */
     public List<String> getReports() {
+        ensureHistoryLoaded();
         return reports;
     }
 
@@ -87,6 +120,7 @@ class Patient extends Person {
      * @return A list of Injury objects representing the patient's injury history
      */
     public List<Injury> getInjuries() {
+        ensureHistoryLoaded();
         return injuries;
     }
 
@@ -96,21 +130,57 @@ class Patient extends Person {
      * 
      * @param appointment The Appointment object to add (must not be null)
      */
-    public void addReservation(Appointment appointment) {
+    public synchronized void addReservation(Appointment appointment) {
         if (appointment != null) {
+            ensureHistoryLoaded();
             reservations.add(appointment);
+            if (historyStore != null) {
+                historyStore.appendReservation(username, appointment);
+            }
         }
     }
 
+    /**
+     * Removes an appointment from the patient's reservations and records the
+     * cancellation in the history store. The reservation is matched by slot
+     * (doctor, date or weekday, and time), so a copy of it, e.g. one read back
+     * from history or made on another Patient object of the same account,
+     * cancels it too.
+     * 
+     * @param appointment The reservation to cancel
+     * @return true if the appointment was one of the patient's reservations
+     */
+    public synchronized boolean cancelReservation(Appointment appointment) {
+        ensureHistoryLoaded();
+        if (appointment == null) {
+            return false;
+        }
+        for (Iterator<Appointment> it = reservations.iterator(); it.hasNext(); ) {
+            Appointment reservation = it.next();
+            if (reservation.isSameSlot(appointment)) {
+                it.remove();
+                if (historyStore != null) {
+                    historyStore.appendCancellation(username, reservation);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Adds a new report string to the patient's record.
      * Performs validation to ensure the report is not null or empty.
      * 
      * @param report The report string to add (must not be null or empty after trimming)
      */
-    public void addReport(String report) {
+    public synchronized void addReport(String report) {
         if (report != null && !report.trim().isEmpty()) {
+            ensureHistoryLoaded();
             reports.add(report);
+            if (historyStore != null) {
+                historyStore.appendReport(username, report);
+            }
         }
     }
 
@@ -120,9 +190,13 @@ class Patient extends Person {
      * This maintains the composition relationship: Patient HAS-A Injury.
      * 
      */
-    public void addInjury(Injury injury) {
+    public synchronized void addInjury(Injury injury) {
         if (injury != null) {
+            ensureHistoryLoaded();
             injuries.add(injury);
+            if (historyStore != null) {
+                historyStore.appendInjury(username, injury);
+            }
         }
     }
     
@@ -130,9 +204,13 @@ class Patient extends Person {
      * Creates a new Patient object with updated personal details while preserving
      * all existing reservations, reports, and injuries. This is useful when updating
      * patient information without losing their medical history.
+     * A history that has not been loaded yet is not read here; the copy
+     * shares the history store and loads it on first access instead.
      */
-    public Patient updateDetails(String name, int age, boolean gender, String contact_no, String address) {
+    public synchronized Patient updateDetails(String name, int age, boolean gender, String contact_no, String address) {
         Patient updated = new Patient(this.username, this.password, name, age, gender, contact_no, address);
+        updated.historyStore = this.historyStore;
+        updated.historyLoaded = this.historyLoaded;
         // Copy all reservations
         updated.reservations.addAll(this.reservations);
         // Copy all reports
@@ -141,4 +219,19 @@ class Patient extends Person {
         updated.injuries.addAll(this.injuries);
         return updated;
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a copy of this patient with a different stored password,
+     * keeping personal details and medical history. Used to replace a
+     * legacy plain-text password with its hash.
+     */
+    public synchronized Patient withPassword(String newPassword) {
+        Patient updated = new Patient(this.username, newPassword, getName(), getAge(), isGender(), getContact_no(), getAddress());
+        updated.historyStore = this.historyStore;
+        updated.historyLoaded = this.historyLoaded;
+        updated.reservations.addAll(this.reservations);
+        updated.reports.addAll(this.reports);
+        updated.injuries.addAll(this.injuries);
+        return updated;
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.*;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Persists each patient's injuries, reservations and reports as an
+ * append-only history segment, one file per username.
+ *
+ * Record layout (DataOutputStream): byte kind, then the fields of that kind
+ * as modified UTF-8 strings:
+ *   INJURY      - injury type
+ *   RESERVATION - weekday, time, doctor name, athlete description
+ *   REPORT      - report text
+ *   CANCELLATION - weekday, time, doctor name of a cancelled reservation
+ *   DATED_RESERVATION  - date (ISO-8601), time, doctor name, athlete description
+ *   DATED_CANCELLATION - date, time, doctor name of a cancelled dated reservation
+ *
+ * Weekly and dated reservations use separate kinds so segments written
+ * before dated appointments existed still read the same way.
+ *
+ * Rationale: History only ever grows, so appending the new item is enough
+ * to make it durable; nothing else in the account store has to be rewritten.
+ * Keeping one segment per patient means loading a history reads only that
+ * patient's file.
+ */
+class PatientHistoryStore {
+    private static final byte INJURY = 1;
+    private static final byte RESERVATION = 2;
+    private static final byte REPORT = 3;
+    private static final byte CANCELLATION = 4;
+    private static final byte DATED_RESERVATION = 5;
+    private static final byte DATED_CANCELLATION = 6;
+
+    private final File directory;
+
+    /**
+     * @param directoryName Directory that holds the per-patient history files
+     */
+    public PatientHistoryStore(String directoryName) {
+        this.directory = new File(directoryName);
+    }
+
+    /**
+     * Appends an injury to the patient's history segment.
+     */
+    public void appendInjury(String username, Injury injury) {
+        append(username, out -> {
+            out.writeByte(INJURY);
+            out.writeUTF(injury.getType());
+        });
+    }
+
+    /**
+     * Appends a reservation to the patient's history segment.
+     */
+    public void appendReservation(String username, Appointment appointment) {
+        append(username, out -> {
+            if (appointment.getDate() != null) {
+                out.writeByte(DATED_RESERVATION);
+                out.writeUTF(appointment.getDate().toString());
+            } else {
+                out.writeByte(RESERVATION);
+                out.writeUTF(appointment.getWeekday().name());
+            }
+            out.writeUTF(appointment.getTime());
+            out.writeUTF(appointment.getDoctorName());
+            out.writeUTF(appointment.getAthleteDescription());
+        });
+    }
+
+    /**
+     * Appends a cancellation to the patient's history segment. On load it
+     * removes the most recent matching reservation recorded before it.
+     */
+    public void appendCancellation(String username, Appointment appointment) {
+        append(username, out -> {
+            if (appointment.getDate() != null) {
+                out.writeByte(DATED_CANCELLATION);
+                out.writeUTF(appointment.getDate().toString());
+            } else {
+                out.writeByte(CANCELLATION);
+                out.writeUTF(appointment.getWeekday().name());
+            }
+            out.writeUTF(appointment.getTime());
+            out.writeUTF(appointment.getDoctorName());
+        });
+    }
+
+    /**
+     * Appends a report to the patient's history segment.
+     */
+    public void appendReport(String username, String report) {
+        append(username, out -> {
+            out.writeByte(REPORT);
+            out.writeUTF(report);
+        });
+    }
+
+    /**
+     * Reads the patient's history segment into the given lists, in the
+     * order the items were recorded. A missing segment means no history.
+     * Injuries that are no longer in the catalog are skipped.
+     */
+    public synchronized void load(Patient patient, List<Injury> injuries, List<Appointment> reservations, List<String> reports) {
+        File file = fileFor(patient.getUsername());
+        if (file.exists()) {
+            readSegment(file, patient, injuries, reservations, reports);
+        }
+    }
+
+    /**
+     * Reads the reservations of every history segment, for checking the
+     * booking calendar. Each appointment carries a Patient holding only the
+     * username, since the account itself is not loaded.
+     */
+    public synchronized List<Appointment> loadAllReservations() {
+        List<Appointment> reservations = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files == null) {
+            return reservations;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            String username = URLDecoder.decode(name.substring(0, name.length() - ".dat".length()), StandardCharsets.UTF_8);
+            readSegment(file, new Patient(username, ""), new ArrayList<>(), reservations, new ArrayList<>());
+        }
+        return reservations;
+    }
+
+    private void readSegment(File file, Patient patient, List<Injury> injuries, List<Appointment> reservations, List<String> reports) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int kind = in.read();
+                if (kind < 0) {
+                    break;
+                }
+                if (kind == INJURY) {
+                    Injury injury = Injury.findByType(in.readUTF());
+                    if (injury != null) {
+                        injuries.add(injury);
+                    }
+                } else if (kind == RESERVATION) {
+                    Weekday day = Weekday.valueOf(in.readUTF());
+                    String time = in.readUTF();
+                    String doctor = in.readUTF();
+                    reservations.add(new Appointment(day, time, doctor, patient, in.readUTF()));
+                } else if (kind == DATED_RESERVATION) {
+                    LocalDate date = LocalDate.parse(in.readUTF());
+                    String time = in.readUTF();
+                    String doctor = in.readUTF();
+                    reservations.add(new Appointment(date, time, doctor, patient, in.readUTF()));
+                } else if (kind == CANCELLATION) {
+                    Weekday day = Weekday.valueOf(in.readUTF());
+                    removeLatest(reservations, null, day, in.readUTF(), in.readUTF());
+                } else if (kind == DATED_CANCELLATION) {
+                    LocalDate date = LocalDate.parse(in.readUTF());
+                    removeLatest(reservations, date, Weekday.fromDayOfWeek(date.getDayOfWeek()), in.readUTF(), in.readUTF());
+                } else if (kind == REPORT) {
+                    reports.add(in.readUTF());
+                } else {
+                    System.out.println("Unknown history record in " + file.getName() + ", ignoring the rest");
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // A record cut short by a crash during append; keep everything before it
+        } catch (IOException | IllegalArgumentException | DateTimeException e) {
+            System.out.println("Error loading history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the most recent reservation matching a cancellation record.
+     * @param date The reservation's date, or null for a weekly reservation
+     */
+    private static void removeLatest(List<Appointment> reservations, LocalDate date, Weekday day, String time, String doctor) {
+        for (int i = reservations.size() - 1; i >= 0; i--) {
+            Appointment reservation = reservations.get(i);
+            if (Objects.equals(reservation.getDate(), date) && reservation.getWeekday() == day
+                    && reservation.getTime().equals(time) && reservation.getDoctorName().equals(doctor)) {
+                reservations.remove(i);
+                return;
+            }
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Serializes one record and appends it to the segment with a single write.
+     */
+    private synchronized void append(String username, RecordWriter record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            record.write(new DataOutputStream(bytes));
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            try (FileOutputStream out = new FileOutputStream(fileFor(username), true)) {
+                bytes.writeTo(out);
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving history: " + e.getMessage());
+        }
+    }
+
+    private File fileFor(String username) {
+        return new File(directory, URLEncoder.encode(username, StandardCharsets.UTF_8) + ".dat");
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of a club roster into the account store.
+ * The roster is streamed in batches; every batch is validated in parallel
+ * and its accepted patients are committed with a single journal write.
+ *
+ * Roster format: one patient per line, in the 7-field accounts format
+ * "username,password,name,age,gender,contact,address" (gender: true = male).
+ *
+ * Rationale: Onboarding a club one interactive signup at a time does not
+ * scale. Validation (including password hashing) is independent per row,
+ * so it runs in parallel, while username claims go through AccountManager
+ * one by one so duplicates are rejected exactly as signup rejects them.
+ */
+class PatientImporter {
+    private static final int BATCH_SIZE = 1000;
+
+    private final AccountManager accountManager;
+
+    public PatientImporter(AccountManager accountManager) {
+        this.accountManager = accountManager;
+    }
+
+    /**
+     * A roster line that was not imported, and why.
+     */
+    public static class Rejection {
+        private final int lineNumber;
+        private final String line;
+        private final String reason;
+
+        Rejection(int lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason + " [" + line + "]";
+        }
+    }
+
+    /**
+     * Outcome of one import run.
+     */
+    public static class Result {
+        private final int imported;
+        private final List<Rejection> rejections;
+        private final long elapsedNanos;
+
+        Result(int imported, List<Rejection> rejections, long elapsedNanos) {
+            this.imported = imported;
+            this.rejections = rejections;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public List<Rejection> getRejections() {
+            return rejections;
+        }
+
+        /**
+         * Rows processed (imported and rejected) per second.
+         */
+        public double getRowsPerSecond() {
+            return (imported + rejections.size()) / Math.max(1e-9, elapsedNanos / 1e9);
+        }
+    }
+
+    /** Per-row validation outcome: exactly one of patient/reason is set */
+    private static class Row {
+        final int lineNumber;
+        final String line;
+        Patient patient;
+        String reason;
+
+        Row(int lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Imports every patient in the roster file.
+     * @throws IOException if the roster cannot be read
+     */
+    public Result importFile(String fileName) throws IOException {
+        long start = System.nanoTime();
+        int imported = 0;
+        List<Rejection> rejections = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+            List<Row> batch = new ArrayList<>(BATCH_SIZE);
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                batch.add(new Row(lineNumber, line));
+                if (batch.size() == BATCH_SIZE) {
+                    imported += commit(batch, rejections);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            imported += commit(batch, rejections);
+        }
+        return new Result(imported, rejections, System.nanoTime() - start);
+    }
+
+    /**
+     * Validates one batch in parallel, claims usernames, and writes the
+     * accepted patients with one journal append.
+     * @return The number of patients imported from this batch
+     */
+    private int commit(List<Row> batch, List<Rejection> rejections) {
+        batch.parallelStream().forEach(this::validate);
+        List<Patient> accepted = new ArrayList<>();
+        for (Row row : batch) {
+            if (row.patient != null && !accountManager.addUser(row.patient)) {
+                row.reason = "Username '" + row.patient.getUsername() + "' is already taken";
+            }
+            if (row.reason != null) {
+                rejections.add(new Rejection(row.lineNumber, row.line, row.reason));
+            } else {
+                accepted.add(row.patient);
+            }
+        }
+        if (!accepted.isEmpty()) {
+            accountManager.persistUsers(accepted);
+        }
+        return accepted.size();
+    }
+
+    /**
+     * Parses a row and builds its Patient, applying the Person setter rules.
+     * The password is hashed here, on the AuthenticationService pool, so the
+     * cost overlaps with the rest of the parallel stage.
+     */
+    private void validate(Row row) {
+        String[] parts = row.line.split(",", -1);
+        if (parts.length != 7) {
+            row.reason = "Expected 7 fields but found " + parts.length;
+            return;
+        }
+        String username = parts[0].trim();
+        String password = parts[1].trim();
+        if (username.isEmpty() || password.isEmpty()) {
+            row.reason = "Username and password are required";
+            return;
+        }
+        try {
+            int age = Integer.parseInt(parts[3].trim());
+            boolean gender = Boolean.parseBoolean(parts[4].trim());
+            row.patient = new Patient(username, accountManager.hashPassword(password), parts[2], age, gender, parts[5].trim(), parts[6]);
+        } catch (NumberFormatException e) {
+            row.reason = "Age is not a number: " + parts[3];
+        } catch (IllegalArgumentException | RejectedExecutionException e) {
+            row.reason = e.getMessage();
+        }
+    }
+
+    /**
+     * Imports a roster file into accounts.txt and prints a summary.
+     * Usage: java PatientImporter roster.csv
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java PatientImporter <roster file>");
+            return;
+        }
+        AccountManager accountManager = new AccountManager();
+        Result result = new PatientImporter(accountManager).importFile(args[0]);
+        System.out.println("Imported " + result.getImported() + " patients, rejected " + result.getRejections().size()
+                + String.format(" (%.0f rows/s)", result.getRowsPerSecond()));
+        if (!result.getRejections().isEmpty()) {
+            System.out.println(result.getRejections().stream().map(Rejection::toString).collect(Collectors.joining("\n")));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage backend for patient accounts used by AccountManager.
+ * Implementations: TextFilePatientRepository (accounts.txt plus journal),
+ * BinaryPatientRepository (accounts.bin plus journal),
+ * InMemoryPatientRepository (no persistence) and JdbcPatientRepository
+ * (embedded SQL database such as H2 or SQLite in file mode).
+ * PatientRepositoryBenchmark runs the same workload against each of them.
+ *
+ * Rationale: AccountManager owns the in-memory view, authentication and
+ * search; how accounts reach disk is a separate concern. Putting storage
+ * behind an interface lets the same account logic run on different
+ * backends and lets them be compared under the same workload.
+ */
+interface PatientRepository {
+    /**
+     * Loads every stored account, in storage order.
+     */
+    List<Patient> loadAll();
+
+    /**
+     * Loads a single account without loading the others.
+     * @return The stored patient, or null if there is none with this username
+     */
+    Patient find(String username);
+
+    /**
+     * Checks whether an account with this username is stored.
+     */
+    boolean contains(String username);
+
+    /**
+     * Reports the username and name of every stored account without building
+     * full Patient objects where the backend can avoid it. Used to fill the
+     * search index when accounts are loaded lazily.
+     */
+    void forEachSummary(BiConsumer<String, String> consumer);
+
+    /**
+     * Durably records the current state of the given accounts.
+     * Called for every change, so its cost should not grow with the store.
+     */
+    void save(Collection<Patient> patients);
+
+    /**
+     * Starts saving the given accounts and returns once their order relative
+     * to other saves is fixed; the future completes when they are durable.
+     * Lets a caller hold a lock while ordering a write without also holding
+     * it for the disk flush. The default simply saves synchronously.
+     */
+    default CompletableFuture<Void> submit(Collection<Patient> patients) {
+        save(patients);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Records the given accounts and consolidates storage (for example by
+     * compacting a journal). Stored accounts not in the collection are kept.
+     */
+    void saveAll(Collection<Patient> patients);
+
+    /**
+     * Releases resources held by the backend, such as a database connection.
+     * Call after the last save; the default does nothing.
+     */
+    default void close() {
+    }
+}
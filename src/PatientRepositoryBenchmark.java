@@ -0,0 +1,171 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the same account workload against each PatientRepository backend so
+ * they can be compared on equal terms:
+ *   signup   - one save() per new account
+ *   update   - one save() per changed account
+ *   find     - single-account lookups (lazy login)
+ *   contains - username checks (signup)
+ *   loadAll  - full load (eager startup)
+ *   saveAll  - consolidation with a batch of changed accounts
+ *   bytes    - size of the backend's files after saveAll
+ *
+ * Each backend starts from an empty store in a temporary directory.
+ * Backends: "memory", "text", "binary", "h2", "sqlite" (the last two need the driver
+ * jar on the classpath), or any JDBC URL starting with "jdbc:".
+ * Usage: java PatientRepositoryBenchmark [accounts] [backend...]
+ */
+class PatientRepositoryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        List<String> backends = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            backends.add(args[i]);
+        }
+        if (backends.isEmpty()) {
+            backends.add("memory");
+            backends.add("text");
+            backends.add("binary");
+        }
+
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %10s   (ops/s, %d accounts)%n",
+                "backend", "signup", "update", "find", "contains", "loadAll", "saveAll", "bytes", accounts);
+        for (String backend : backends) {
+            File directory = Files.createTempDirectory("repository-benchmark").toFile();
+            PatientRepository repository;
+            try {
+                repository = open(backend, directory);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                System.out.printf("%-10s skipped: %s%n", backend, e.getMessage());
+                delete(directory);
+                continue;
+            }
+            try {
+                System.out.println(run(backend, repository, accounts, directory));
+            } finally {
+                repository.close();
+                delete(directory);
+            }
+        }
+    }
+
+    private static PatientRepository open(String backend, File directory) throws IOException {
+        switch (backend) {
+            case "memory":
+                return new InMemoryPatientRepository();
+            case "text":
+                File base = new File(directory, "accounts.txt");
+                base.createNewFile();
+                return new TextFilePatientRepository(base.getPath(), new File(directory, "accounts.journal").getPath());
+            case "binary":
+                return new BinaryPatientRepository(new File(directory, "accounts.bin").getPath(),
+                        new File(directory, "accounts.bin.journal").getPath());
+            case "h2":
+                return new JdbcPatientRepository("jdbc:h2:" + new File(directory, "accounts").getAbsolutePath());
+            case "sqlite":
+                return new JdbcPatientRepository("jdbc:sqlite:" + new File(directory, "accounts.db").getAbsolutePath());
+            default:
+                if (backend.startsWith("jdbc:")) {
+                    return new JdbcPatientRepository(backend);
+                }
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    private static String run(String backend, PatientRepository repository, int accounts, File directory) {
+        Random random = new Random(42);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < accounts; i++) {
+            repository.save(List.of(patient(i, "Name " + i)));
+        }
+        double signup = rate(accounts, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < accounts; i++) {
+            int k = random.nextInt(accounts);
+            repository.save(List.of(patient(k, "Updated " + i)));
+        }
+        double update = rate(accounts, start);
+
+        int lookups = accounts * 5;
+        int missing = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            if (repository.find("user" + random.nextInt(accounts)) == null) {
+                missing++;
+            }
+        }
+        double find = rate(lookups, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            if (!repository.contains("user" + random.nextInt(accounts))) {
+                missing++;
+            }
+        }
+        double contains = rate(lookups, start);
+
+        start = System.nanoTime();
+        int loaded = repository.loadAll().size();
+        double loadAll = rate(loaded, start);
+
+        List<Patient> changed = new ArrayList<>();
+        for (int i = 0; i < Math.min(100, accounts); i++) {
+            changed.add(patient(i, "Consolidated " + i));
+        }
+        start = System.nanoTime();
+        repository.saveAll(changed);
+        double saveAll = rate(changed.size(), start);
+
+        long bytes = size(directory);
+
+        String line = String.format("%-10s %10.0f %10.0f %10.0f %10.0f %10.0f %10.0f %10d",
+                backend, signup, update, find, contains, loadAll, saveAll, bytes);
+        if (missing > 0 || loaded != accounts) {
+            line += String.format("   WRONG: %d lookups missed, %d of %d accounts loaded", missing, loaded, accounts);
+        }
+        return line;
+    }
+
+    private static Patient patient(int k, String name) {
+        return new Patient("user" + k, "secret", name, 20 + k % 50, k % 2 == 0, "01234567890", "Cairo");
+    }
+
+    private static double rate(int operations, long start) {
+        return operations / Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Total size of the files under a directory; 0 for backends that keep
+     * nothing on disk.
+     */
+    private static long size(File file) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            return file.length();
+        }
+        long total = 0;
+        for (File child : children) {
+            total += size(child);
+        }
+        return total;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Case-insensitive prefix index over patient usernames and names.
+ * Answers "first k patients whose username or name starts with ..."
+ * in O(log n + k), which is what a front-desk search box needs.
+ *
+ * Each patient contributes up to two sorted keys of the form
+ * "lowercased text" + '\0' + username, so a prefix query is a range scan
+ * over a skip list starting at the prefix.
+ *
+ * Rationale: A sorted concurrent set gives prefix ranges for free and can
+ * be updated one patient at a time while other threads search it.
+ */
+class PatientSearchIndex {
+    private static final char SEPARATOR = '\0';
+
+    private final NavigableSet<String> keys = new ConcurrentSkipListSet<>();
+    /** Username -> name currently indexed for it, so updates can remove the old key */
+    private final Map<String, String> indexedNames = new ConcurrentHashMap<>();
+
+    /**
+     * Adds or refreshes a patient's entries.
+     * @param username The patient's username
+     * @param name The patient's display name (may be null)
+     */
+    public void update(String username, String name) {
+        keys.add(normalize(username) + SEPARATOR + username);
+        String newName = name == null ? "" : name;
+        String oldName = indexedNames.put(username, newName);
+        if (oldName != null && !oldName.equals(newName) && !oldName.isEmpty()) {
+            keys.remove(normalize(oldName) + SEPARATOR + username);
+        }
+        if (!newName.isEmpty()) {
+            keys.add(normalize(newName) + SEPARATOR + username);
+        }
+    }
+
+    /**
+     * Returns up to limit usernames whose username or name starts with the
+     * prefix, ignoring case, in alphabetical order of the matched text.
+     */
+    public List<String> search(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        if (prefix == null || limit <= 0) {
+            return result;
+        }
+        String from = normalize(prefix);
+        Set<String> seen = new LinkedHashSet<>();
+        for (String key : keys.subSet(from, true, from + Character.MAX_VALUE, false)) {
+            if (seen.add(key.substring(key.lastIndexOf(SEPARATOR) + 1)) && seen.size() == limit) {
+                break;
+            }
+        }
+        result.addAll(seen);
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+}
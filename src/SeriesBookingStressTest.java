@@ -0,0 +1,219 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress test for recurring series and single bookings on one calendar.
+ * All threads are released at once; each randomly books single dates (as
+ * the menus, waitlists and batches do) and series through one DatedCalendar,
+ * and cancels what it holds. Few doctors keep every slot contended. Checks for:
+ *   - exclusion: every booked slot is indexed under exactly one appointment,
+ *     the one whose booking took it
+ *   - all-or-nothing series: a series is returned with every week booked,
+ *     and once the threads finish the calendar holds exactly the live bookings
+ *   - no deadlock: every thread finishes within the timeout
+ *   - no leaked slots: once everything is cancelled every slot is free
+ *
+ * Usage: java SeriesBookingStressTest [threads] [operations] [doctors]
+ * Exits with status 1 if a check fails.
+ */
+class SeriesBookingStressTest {
+    private static final String[] TIMES = {"4:30 PM", "6:30 PM", "8:30 PM", "10:00 PM"};
+    private static final int HORIZON_WEEKS = 8;
+    private static final int MAX_WEEKS = 4;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int doctorCount = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        List<Doctor> staff = new ArrayList<>();
+        for (int i = 0; i < doctorCount; i++) {
+            staff.add(new Doctor("Doctor " + i, 40, true, "01234567890", "Clinic", "Sports Medicine"));
+        }
+        DoctorRegistry doctors = new DoctorRegistry(staff);
+        SlotRegistry registry = new SlotRegistry(doctors, DatedCalendar.dayCount(HORIZON_WEEKS), TIMES);
+        LocalDate today = LocalDate.now();
+        DatedCalendar calendar = new DatedCalendar(doctors, registry, TIMES, today, null);
+        List<LocalDate> dates = calendar.openDates();
+
+        AtomicInteger singles = new AtomicInteger();
+        AtomicInteger series = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger partialSeries = new AtomicInteger();
+        AtomicInteger failedCancels = new AtomicInteger();
+        List<List<Appointment>> heldSingles = new ArrayList<>();
+        List<List<List<Appointment>>> heldSeries = new ArrayList<>();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            List<Appointment> mySingles = new ArrayList<>();
+            List<List<Appointment>> mySeries = new ArrayList<>();
+            heldSingles.add(mySingles);
+            heldSeries.add(mySeries);
+            Random random = new Random(t);
+            workers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int op = 0; op < operations; op++) {
+                    int doctor = random.nextInt(doctorCount);
+                    int time = random.nextInt(TIMES.length);
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            Appointment single = calendar.tryBook(doctor, dates.get(random.nextInt(dates.size())), time, null, "Single");
+                            if (single != null) {
+                                singles.incrementAndGet();
+                                if (!holdsSlotAlone(calendar, doctor, single)) {
+                                    overlaps.incrementAndGet();
+                                }
+                                mySingles.add(single);
+                            }
+                            break;
+                        case 1:
+                            int weeks = 1 + random.nextInt(MAX_WEEKS);
+                            // Any date whose last week still falls inside the horizon
+                            LocalDate first = dates.get(random.nextInt(dates.size() - (weeks - 1) * Weekday.values().length));
+                            List<Appointment> booked = calendar.tryBookSeries(doctor, first, TIMES[time], weeks, null, "Series");
+                            if (booked != null) {
+                                series.incrementAndGet();
+                                if (booked.size() != weeks || !allBooked(calendar, doctor, booked)) {
+                                    partialSeries.incrementAndGet();
+                                }
+                                mySeries.add(booked);
+                            }
+                            break;
+                        default:
+                            cancelOne(random, calendar, doctors, mySingles, mySeries, failedCancels);
+                            break;
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        long start = System.nanoTime();
+        go.countDown();
+        int stuck = 0;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            if (worker.isAlive()) {
+                stuck++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (stuck > 0) {
+            System.out.println(stuck + " threads still running after " + TIMEOUT_SECONDS + " s");
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+
+        int live = 0;
+        for (List<Appointment> mySingles : heldSingles) {
+            live += mySingles.size();
+            for (Appointment single : mySingles) {
+                if (!holdsSlotAlone(calendar, doctors.idOf(single.getDoctorName()), single)) {
+                    overlaps.incrementAndGet();
+                }
+            }
+        }
+        for (List<List<Appointment>> mySeries : heldSeries) {
+            for (List<Appointment> booked : mySeries) {
+                live += booked.size();
+                int doctor = doctors.idOf(booked.get(0).getDoctorName());
+                if (!allBooked(calendar, doctor, booked)) {
+                    partialSeries.incrementAndGet();
+                }
+            }
+        }
+        int stray = 0;
+        for (int doctor = 0; doctor < doctorCount; doctor++) {
+            stray += calendar.bookingsFor(doctor, today, calendar.getHorizonEnd()).size();
+        }
+        stray -= live;
+
+        for (int t = 0; t < threads; t++) {
+            for (Appointment single : heldSingles.get(t)) {
+                if (!calendar.cancel(doctors.idOf(single.getDoctorName()), single)) {
+                    failedCancels.incrementAndGet();
+                }
+            }
+            for (List<Appointment> booked : heldSeries.get(t)) {
+                cancelSeries(calendar, doctors, booked, failedCancels);
+            }
+        }
+        int leaked = 0;
+        for (int bit = 0; bit < registry.slotCount(); bit++) {
+            if (!registry.isFree(bit)) {
+                leaked++;
+            }
+        }
+
+        long calls = (long) threads * operations;
+        System.out.printf("%d operations on %d threads in %.1f s: %d single and %d series bookings%n",
+                calls, threads, seconds, singles.get(), series.get());
+        System.out.printf("%d single bookings sharing their slot, %d partial series, %d stray bookings, %d failed cancels, %d leaked slots%n",
+                overlaps.get(), partialSeries.get(), stray, failedCancels.get(), leaked);
+
+        boolean passed = overlaps.get() == 0 && partialSeries.get() == 0 && stray == 0
+                && failedCancels.get() == 0 && leaked == 0;
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static void cancelOne(Random random, DatedCalendar calendar, DoctorRegistry doctors,
+                                  List<Appointment> mySingles, List<List<Appointment>> mySeries, AtomicInteger failedCancels) {
+        if (random.nextBoolean() && !mySingles.isEmpty()) {
+            Appointment single = mySingles.remove(random.nextInt(mySingles.size()));
+            if (!calendar.cancel(doctors.idOf(single.getDoctorName()), single)) {
+                failedCancels.incrementAndGet();
+            }
+        } else if (!mySeries.isEmpty()) {
+            cancelSeries(calendar, doctors, mySeries.remove(random.nextInt(mySeries.size())), failedCancels);
+        }
+    }
+
+    private static void cancelSeries(DatedCalendar calendar, DoctorRegistry doctors, List<Appointment> booked,
+                                     AtomicInteger failedCancels) {
+        int doctor = doctors.idOf(booked.get(0).getDoctorName());
+        for (Appointment appointment : booked) {
+            if (!calendar.cancel(doctor, appointment)) {
+                failedCancels.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * True if the appointment is the only booking indexed at its date and time.
+     */
+    private static boolean holdsSlotAlone(DatedCalendar calendar, int doctor, Appointment appointment) {
+        LocalDate date = appointment.getDate();
+        int holders = 0;
+        boolean found = false;
+        for (Appointment booked : calendar.bookingsFor(doctor, date, date.plusDays(1))) {
+            if (booked.getTime().equals(appointment.getTime())) {
+                holders++;
+                found |= booked == appointment;
+            }
+        }
+        return found && holders == 1;
+    }
+
+    private static boolean allBooked(DatedCalendar calendar, int doctor, List<Appointment> booked) {
+        for (Appointment appointment : booked) {
+            LocalDate date = appointment.getDate();
+            if (!calendar.bookingsFor(doctor, date, date.plusDays(1)).contains(appointment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
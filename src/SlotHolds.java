@@ -0,0 +1,92 @@
+import java.util.Arrays;
+
+/**
+ * Counted holds on the slots of a SlotRegistry, for bookings that share
+ * one slot, e.g. several short interval bookings inside one fixed time.
+ *
+ * The first hold on a slot books it in the registry with tryBook() and the
+ * last release frees it again, so while any hold exists the slot is taken
+ * for every other booking path (menus, waitlists, batches). A slot that is
+ * already booked by one of those paths cannot be held.
+ *
+ * Rationale: The registry keeps one bit per slot and no owner, so the count
+ * of bookings sharing the bit has to live with the calendar that shares it.
+ * The monitor only guards the 0 <-> 1 transitions against each other;
+ * plain bookings keep using the lock-free tryBook().
+ */
+class SlotHolds {
+    private final SlotRegistry registry;
+    private final int[] counts;
+
+    /**
+     * @param registry The registry whose slots are held
+     */
+    public SlotHolds(SlotRegistry registry) {
+        this.registry = registry;
+        this.counts = new int[registry.slotCount()];
+    }
+
+    /**
+     * Adds a hold on a slot, booking it if this is the first hold.
+     * @param bit The slot's bit index (see SlotRegistry.bitIndex())
+     * @return true if the slot is now held, false if it is booked by someone else
+     */
+    public synchronized boolean acquire(int bit) {
+        if (counts[bit] == 0 && !registry.tryBook(bit)) {
+            return false;
+        }
+        counts[bit]++;
+        return true;
+    }
+
+    /**
+     * Adds a hold on each of several slots, all or nothing. Slots not held
+     * yet are booked together with SlotRegistry.tryBookAll().
+     * @param bits Distinct slot bit indices
+     * @return true if every slot is now held, false if one is booked by
+     *         someone else, in which case nothing changed
+     */
+    public synchronized boolean acquireAll(int[] bits) {
+        int[] fresh = new int[bits.length];
+        int n = 0;
+        for (int bit : bits) {
+            if (counts[bit] == 0) {
+                fresh[n++] = bit;
+            }
+        }
+        if (!registry.tryBookAll(Arrays.copyOf(fresh, n))) {
+            return false;
+        }
+        for (int bit : bits) {
+            counts[bit]++;
+        }
+        return true;
+    }
+
+    /**
+     * Removes a hold on a slot, freeing it if this was the last hold.
+     * Does nothing if the slot is not held.
+     */
+    public void release(int bit) {
+        release(bit, () -> registry.release(bit));
+    }
+
+    /**
+     * Removes a hold on a slot. If this was the last hold, runs free instead
+     * of freeing the slot, e.g. to hand it to a waiting patient; free runs
+     * under this monitor, so no new hold can take the slot before it has.
+     * Does nothing if the slot is not held.
+     */
+    public synchronized void release(int bit, Runnable free) {
+        if (counts[bit] > 0 && --counts[bit] == 0) {
+            free.run();
+        }
+    }
+
+    /**
+     * True if at least one hold exists on the slot.
+     */
+    public synchronized boolean isHeld(int bit) {
+        return counts[bit] > 0;
+    }
+}
@@ -0,0 +1,462 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Booking registry that records which (doctor, day, time) slots are taken.
+ * Doctors are addressed by their scheduling id in a DoctorRegistry, days
+ * and times by ordinal, and occupancy is kept in a packed bitset, one bit per
+ * slot:
+ *
+ *   bit = (doctor * dayCount + day) * timeCount + time
+ *
+ * Rationale: The previous nested Map<String, Map<Weekday, Set<String>>>
+ * allocated empty maps and sets and streamed over them on every availability
+ * check. With ordinals a check or booking is one word read or write: constant
+ * time and no allocation, so redrawing the time menu costs nothing.
+ *
+ * Bookings are made with tryBook(), a compare-and-set on the 64-bit word
+ * holding the slot, so checking and taking a slot is one atomic step and
+ * concurrent bookings of the same slot have exactly one winner. Threads
+ * booking different slots never block each other.
+ *
+ * The bitset can live in a memory-mapped calendar file with a fixed layout
+ * (all ints and longs big-endian):
+ *
+ *   int magic, int version, int doctorCount, int dayCount, int timeCount,
+ *   int state (CLEAN or OPEN), long firstDay, then the bitset words
+ *
+ * firstDay is not interpreted here. A caller that reuses days as a ring,
+ * like DatedCalendar, stores in it which day the ring starts at and frees
+ * the days that have passed with clearDay().
+ *
+ * Opening the file is a map call with no parsing, and a booking is a single
+ * in-place CAS on the mapped word; the OS writes the page back even if the
+ * process dies. The state field records whether the last process closed the
+ * calendar; if it did not, or the file is new, needsRecovery() is true.
+ *
+ * Free-slot queries use a second, in-memory index built at open and kept
+ * up to date by tryBook() and release(). A "slot" here is a (day, time)
+ * pair, numbered day * timeCount + time, so slot order is chronological:
+ *   - bookedDoctors: for every slot, a bitmap over doctors (set = booked),
+ *     i.e. the main bitset transposed;
+ *   - fullSlots: one bit per slot, set when every doctor is booked in it.
+ * Finding the earliest open slot is a first-clear-bit search in fullSlots,
+ * and finding a free doctor in it is one in that slot's doctor bitmap, so
+ * queries touch a few words instead of testing every doctor and time.
+ */
+class SlotRegistry {
+    private static final int MAGIC = 0x43414C31; // "CAL1"
+    private static final int VERSION = 2;
+    private static final int STATE_CLEAN = 0;
+    private static final int STATE_OPEN = 1;
+    private static final int STATE_OFFSET = 20;
+    private static final int FIRST_DAY_OFFSET = 24;
+    private static final int HEADER_SIZE = 32;
+    private static final VarHandle WORD = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Map<String, Integer> timeOrdinals = new HashMap<>();
+    private final int doctorCount;
+    private final int dayCount;
+    private final int timeCount;
+    private final ByteBuffer buffer;
+    private final boolean needsRecovery;
+    /** Number of 64-bit words in one slot's doctor bitmap */
+    private final int doctorWords;
+    private final AtomicLongArray bookedDoctors;
+    private final AtomicLongArray fullSlots;
+
+    /**
+     * Creates an in-memory registry with every slot free.
+     * @param doctors The bookable doctors; slots are addressed by scheduling id
+     * @param dayCount Number of bookable days (day ordinals 0..dayCount-1)
+     * @param times Time slot labels; a time's ordinal is its index in this array
+     */
+    public SlotRegistry(DoctorRegistry doctors, int dayCount, String[] times) {
+        this(doctors, dayCount, times, ByteBuffer.allocateDirect(fileSize(doctors, dayCount, times)), false);
+    }
+
+    private SlotRegistry(DoctorRegistry doctors, int dayCount, String[] times, ByteBuffer buffer, boolean needsRecovery) {
+        for (int i = 0; i < times.length; i++) {
+            timeOrdinals.put(times[i], i);
+        }
+        this.doctorCount = doctors.size();
+        this.dayCount = dayCount;
+        this.timeCount = times.length;
+        this.buffer = buffer;
+        this.needsRecovery = needsRecovery;
+        this.doctorWords = (doctorCount + 63) / 64;
+        int slots = dayCount * timeCount;
+        this.bookedDoctors = new AtomicLongArray(slots * doctorWords);
+        this.fullSlots = new AtomicLongArray((slots + 63) / 64);
+        for (int bit = nextBookedBit(0); bit >= 0; bit = nextBookedBit(bit + 1)) {
+            indexBooking(bit, true);
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            refreshFull(slot);
+        }
+    }
+
+    /**
+     * Opens a registry backed by a memory-mapped calendar file, creating the
+     * file if it is missing. A file whose layout does not match the given
+     * doctors, days and times is reset to all-free and flagged for recovery.
+     * @param fileName The calendar file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static SlotRegistry open(DoctorRegistry doctors, int dayCount, String[] times, String fileName) throws IOException {
+        int size = fileSize(doctors, dayCount, times);
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean matches = channel.size() == size;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            matches = matches && mapped.getInt(0) == MAGIC && mapped.getInt(4) == VERSION
+                    && mapped.getInt(8) == doctors.size() && mapped.getInt(12) == dayCount && mapped.getInt(16) == times.length;
+            if (!matches) {
+                for (int i = 0; i < size; i++) {
+                    mapped.put(i, (byte) 0);
+                }
+                mapped.putInt(0, MAGIC);
+                mapped.putInt(4, VERSION);
+                mapped.putInt(8, doctors.size());
+                mapped.putInt(12, dayCount);
+                mapped.putInt(16, times.length);
+            }
+            boolean needsRecovery = !matches || mapped.getInt(STATE_OFFSET) != STATE_CLEAN;
+            mapped.putInt(STATE_OFFSET, STATE_OPEN);
+            mapped.force();
+            return new SlotRegistry(doctors, dayCount, times, mapped, needsRecovery);
+        }
+    }
+
+    private static int fileSize(DoctorRegistry doctors, int dayCount, String[] times) {
+        return HEADER_SIZE + (doctors.size() * dayCount * times.length + 63) / 64 * 8;
+    }
+
+    /**
+     * True if the calendar file is new or was not closed cleanly, so bookings
+     * made just before a crash may not match the patients' reservations.
+     */
+    public boolean needsRecovery() {
+        return needsRecovery;
+    }
+
+    /**
+     * @return The time slot's ordinal
+     * @throws IllegalArgumentException if the time is not a registered slot
+     */
+    public int timeOrdinal(String time) {
+        Integer ordinal = timeOrdinals.get(time);
+        if (ordinal == null) {
+            throw new IllegalArgumentException("Unknown time slot: " + time);
+        }
+        return ordinal;
+    }
+
+    /**
+     * Number of slots (bits) in the registry.
+     */
+    public int slotCount() {
+        return doctorCount * dayCount * timeCount;
+    }
+
+    /**
+     * Number of days (day ordinals 0..dayCount()-1).
+     */
+    public int dayCount() {
+        return dayCount;
+    }
+
+    /**
+     * The firstDay header field: 0 in a new registry, otherwise the value
+     * last stored with setFirstDay().
+     */
+    public long firstDay() {
+        return buffer.getLong(FIRST_DAY_OFFSET);
+    }
+
+    /**
+     * Stores the firstDay header field; in a calendar file it is written in
+     * place like a booking.
+     */
+    public void setFirstDay(long firstDay) {
+        buffer.putLong(FIRST_DAY_OFFSET, firstDay);
+    }
+
+    /**
+     * Checks whether a slot is currently free. The answer may be stale by the
+     * time it is used; only tryBook() decides who gets a slot.
+     */
+    public boolean isFree(int doctor, int day, int time) {
+        return isFree(bitIndex(doctor, day, time));
+    }
+
+    /**
+     * Same as isFree(doctor, day, time) for a slot's bit index.
+     */
+    public boolean isFree(int bit) {
+        return (word(bit >>> 6) & (1L << bit)) == 0;
+    }
+
+    /**
+     * Atomically books a slot if it is free.
+     * @return true if this call booked the slot, false if it was already taken
+     */
+    public boolean tryBook(int doctor, int day, int time) {
+        return tryBook(bitIndex(doctor, day, time));
+    }
+
+    /**
+     * Same as tryBook(doctor, day, time) for a slot's bit index.
+     */
+    public boolean tryBook(int bit) {
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        while (true) {
+            long current = word(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (WORD.compareAndSet(buffer, offset(word), current, current | mask)) {
+                indexBooking(bit, true);
+                return true;
+            }
+            // Another slot in the same word changed; retry against the new value
+        }
+    }
+
+    /**
+     * Books several slots all-or-nothing. Slots are taken one by one with
+     * tryBook(); if one is already taken, the ones taken so far are released
+     * and nothing stays booked. Lock-free, so it cannot deadlock with other
+     * bookings; a concurrent tryBook() may briefly see a slot held by a
+     * series that then rolls back.
+     * @param bits Slot bit indices (see bitIndex()); must be distinct
+     * @return true if every slot was booked, false if none was
+     */
+    public boolean tryBookAll(int[] bits) {
+        for (int i = 0; i < bits.length; i++) {
+            if (!tryBook(bits[i])) {
+                for (int j = 0; j < i; j++) {
+                    release(bits[j]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Atomically frees a slot.
+     * @return true if this call freed the slot, false if it was already free
+     */
+    public boolean release(int bit) {
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        while (true) {
+            long current = word(word);
+            if ((current & mask) == 0) {
+                return false;
+            }
+            if (WORD.compareAndSet(buffer, offset(word), current, current & ~mask)) {
+                indexBooking(bit, false);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees every slot of one day, for every doctor.
+     * @return The number of slots that were booked
+     */
+    public int clearDay(int day) {
+        int freed = 0;
+        for (int doctor = 0; doctor < doctorCount; doctor++) {
+            for (int time = 0; time < timeCount; time++) {
+                if (release(bitIndex(doctor, day, time))) {
+                    freed++;
+                }
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * True if the registry is backed by a calendar file.
+     */
+    public boolean isPersistent() {
+        return buffer instanceof MappedByteBuffer;
+    }
+
+    /**
+     * Flushes the calendar file and marks it as cleanly closed.
+     * The registry must not be used afterwards. No effect in memory.
+     */
+    public void close() {
+        if (buffer instanceof MappedByteBuffer) {
+            buffer.putInt(STATE_OFFSET, STATE_CLEAN);
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    /**
+     * Returns the first (day, time) slot at or after fromSlot in which at
+     * least one doctor is free, or -1 if there is none. Slots are numbered
+     * day * timeCount + time.
+     */
+    public int nextOpenSlot(int fromSlot) {
+        int slots = dayCount * timeCount;
+        if (fromSlot >= slots) {
+            return -1;
+        }
+        for (int w = fromSlot >>> 6; w < fullSlots.length(); w++) {
+            long open = ~fullSlots.get(w);
+            if (w == fromSlot >>> 6) {
+                open &= -1L << fromSlot;
+            }
+            if (open != 0) {
+                int slot = w * 64 + Long.numberOfTrailingZeros(open);
+                return slot < slots ? slot : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first doctor at or after fromDoctor who is free in the
+     * given (day, time) slot, or -1 if there is none.
+     */
+    public int nextFreeDoctor(int slot, int fromDoctor) {
+        if (fromDoctor >= doctorCount) {
+            return -1;
+        }
+        int base = slot * doctorWords;
+        for (int w = fromDoctor >>> 6; w < doctorWords; w++) {
+            long free = ~bookedDoctors.get(base + w);
+            if (w == fromDoctor >>> 6) {
+                free &= -1L << fromDoctor;
+            }
+            if (free != 0) {
+                int doctor = w * 64 + Long.numberOfTrailingZeros(free);
+                return doctor < doctorCount ? doctor : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first free time at or after fromTime for the doctor on the
+     * given day, or -1 if there is none. A doctor's days are contiguous in
+     * the main bitset, so this reads whole words rather than single bits.
+     */
+    public int nextFreeTime(int doctor, int day, int fromTime) {
+        int start = bitIndex(doctor, day, 0);
+        int end = start + timeCount;
+        int from = start + fromTime;
+        for (int w = from >>> 6; from < end && w <= (end - 1) >>> 6; w++) {
+            long free = ~word(w);
+            if (w == from >>> 6) {
+                free &= -1L << from;
+            }
+            if (free != 0) {
+                int bit = w * 64 + Long.numberOfTrailingZeros(free);
+                return bit < end ? bit - start : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Mirrors a booking or release of the main bitset into the doctor
+     * bitmap of its (day, time) slot and updates that slot's full bit.
+     */
+    private void indexBooking(int bit, boolean booked) {
+        int slotsPerDoctor = dayCount * timeCount;
+        int doctor = bit / slotsPerDoctor;
+        int slot = bit % slotsPerDoctor;
+        int index = slot * doctorWords + (doctor >>> 6);
+        long mask = 1L << doctor;
+        while (true) {
+            long current = bookedDoctors.get(index);
+            long updated = booked ? current | mask : current & ~mask;
+            if (bookedDoctors.compareAndSet(index, current, updated)) {
+                break;
+            }
+        }
+        refreshFull(slot);
+    }
+
+    /**
+     * Sets or clears the slot's full bit to match its doctor bitmap. Rechecks
+     * after writing, so when bookings and releases race on the same slot the
+     * last thread to write leaves the bit matching the bitmap.
+     */
+    private void refreshFull(int slot) {
+        int index = slot >>> 6;
+        long mask = 1L << slot;
+        while (true) {
+            boolean full = isFull(slot);
+            while (true) {
+                long current = fullSlots.get(index);
+                long updated = full ? current | mask : current & ~mask;
+                if (current == updated || fullSlots.compareAndSet(index, current, updated)) {
+                    break;
+                }
+            }
+            if (isFull(slot) == full) {
+                return;
+            }
+        }
+    }
+
+    private boolean isFull(int slot) {
+        int base = slot * doctorWords;
+        for (int w = 0; w < doctorWords; w++) {
+            int bits = Math.min(64, doctorCount - w * 64);
+            long all = bits == 64 ? -1L : (1L << bits) - 1;
+            if (bookedDoctors.get(base + w) != all) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int nextBookedBit(int from) {
+        int end = slotCount();
+        for (int w = from >>> 6; from < end && w <= (end - 1) >>> 6; w++) {
+            long booked = word(w);
+            if (w == from >>> 6) {
+                booked &= -1L << from;
+            }
+            if (booked != 0) {
+                int bit = w * 64 + Long.numberOfTrailingZeros(booked);
+                return bit < end ? bit : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Bit index of a slot in the main bitset, as taken by tryBook(bit) and release(bit).
+     */
+    int bitIndex(int doctor, int day, int time) {
+        return (doctor * dayCount + day) * timeCount + time;
+    }
+
+    private long word(int word) {
+        return (long) WORD.getVolatile(buffer, offset(word));
+    }
+
+    private static int offset(int word) {
+        return HEADER_SIZE + word * 8;
+    }
+}
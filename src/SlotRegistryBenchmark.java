@@ -0,0 +1,213 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares SlotRegistry with the nested-map registry it replaced in
+ * Appointment (Map<String, Map<Weekday, Set<String>>> keyed by doctor
+ * name, weekday and time label, checked with getOrDefault and a stream):
+ *   check - one availability check of a random slot
+ *   menu  - one time-menu redraw: a check of every time for a doctor and day
+ *   book  - booking a random slot and releasing it again
+ *
+ * Both registries start with the same random half of the slots booked.
+ * Each workload runs a few untimed rounds first; the reported rate is the
+ * best timed round. "B/op" is the bytes the thread allocated per operation
+ * (where the JVM can report it), so 0 means the path is allocation-free.
+ * Usage: java SlotRegistryBenchmark [doctors] [operations] [rounds]
+ */
+class SlotRegistryBenchmark {
+    private static final String[] TIMES = {"4:30 PM", "6:30 PM", "8:30 PM", "10:00 PM"};
+    private static final Weekday[] DAYS = Weekday.values();
+
+    /** The two implementations under the same int-addressed calls */
+    private interface Registry {
+        boolean isFree(int doctor, int day, int time);
+
+        boolean tryBook(int doctor, int day, int time);
+
+        void release(int doctor, int day, int time);
+    }
+
+    /** The registry Appointment used before SlotRegistry, as it was */
+    private static class NestedMapRegistry implements Registry {
+        private final Map<String, Map<Weekday, Set<String>>> bookings = new HashMap<>();
+        private final String[] doctorNames;
+
+        NestedMapRegistry(String[] doctorNames) {
+            this.doctorNames = doctorNames;
+        }
+
+        @Override
+        public boolean isFree(int doctor, int day, int time) {
+            String name = doctorNames[doctor];
+            String label = TIMES[time];
+            return bookings.getOrDefault(name, new HashMap<>())
+                    .getOrDefault(DAYS[day], new HashSet<>())
+                    .stream()
+                    .noneMatch(t -> t.equals(label));
+        }
+
+        @Override
+        public boolean tryBook(int doctor, int day, int time) {
+            if (!isFree(doctor, day, time)) {
+                return false;
+            }
+            bookings.computeIfAbsent(doctorNames[doctor], d -> new HashMap<>())
+                    .computeIfAbsent(DAYS[day], w -> new HashSet<>())
+                    .add(TIMES[time]);
+            return true;
+        }
+
+        @Override
+        public void release(int doctor, int day, int time) {
+            bookings.get(doctorNames[doctor]).get(DAYS[day]).remove(TIMES[time]);
+        }
+    }
+
+    private static class BitsetRegistry implements Registry {
+        private final SlotRegistry registry;
+
+        BitsetRegistry(DoctorRegistry doctors) {
+            this.registry = new SlotRegistry(doctors, DAYS.length, TIMES);
+        }
+
+        @Override
+        public boolean isFree(int doctor, int day, int time) {
+            return registry.isFree(doctor, day, time);
+        }
+
+        @Override
+        public boolean tryBook(int doctor, int day, int time) {
+            return registry.tryBook(doctor, day, time);
+        }
+
+        @Override
+        public void release(int doctor, int day, int time) {
+            registry.release(registry.bitIndex(doctor, day, time));
+        }
+    }
+
+    public static void main(String[] args) {
+        int doctorCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        List<Doctor> staff = new ArrayList<>();
+        String[] names = new String[doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            names[i] = "Dr. Doctor " + i;
+            staff.add(new Doctor(names[i], 40, true, "01234567890", "Clinic", "Sports Medicine"));
+        }
+        DoctorRegistry doctors = new DoctorRegistry(staff);
+        Registry nested = new NestedMapRegistry(names);
+        Registry bitset = new BitsetRegistry(doctors);
+
+        Random random = new Random(42);
+        for (int doctor = 0; doctor < doctorCount; doctor++) {
+            for (int day = 0; day < DAYS.length; day++) {
+                for (int time = 0; time < TIMES.length; time++) {
+                    if (random.nextBoolean()) {
+                        nested.tryBook(doctor, day, time);
+                        bitset.tryBook(doctor, day, time);
+                    }
+                }
+            }
+        }
+        int[] doctorOf = new int[operations];
+        int[] dayOf = new int[operations];
+        int[] timeOf = new int[operations];
+        for (int i = 0; i < operations; i++) {
+            doctorOf[i] = random.nextInt(doctorCount);
+            dayOf[i] = random.nextInt(DAYS.length);
+            timeOf[i] = random.nextInt(TIMES.length);
+        }
+
+        System.out.printf("%-10s %-8s %14s %10s   (%d doctors, %d slots, %d operations)%n",
+                "registry", "workload", "ops/s", "B/op", doctorCount, doctorCount * DAYS.length * TIMES.length, operations);
+        boolean measured = allocatedBytes() >= 0;
+        long[] checksums = new long[2];
+        Registry[] registries = {nested, bitset};
+        String[] labels = {"nested", "bitset"};
+        String[] workloads = {"check", "menu", "book"};
+        for (String workload : workloads) {
+            for (int r = 0; r < registries.length; r++) {
+                Registry registry = registries[r];
+                for (int i = 0; i < 3; i++) {
+                    run(workload, registry, doctorOf, dayOf, timeOf);
+                }
+                long best = Long.MAX_VALUE;
+                long bestBytes = 0;
+                for (int i = 0; i < rounds; i++) {
+                    long bytesBefore = allocatedBytes();
+                    long start = System.nanoTime();
+                    checksums[r] += run(workload, registry, doctorOf, dayOf, timeOf);
+                    long elapsed = System.nanoTime() - start;
+                    long bytes = allocatedBytes() - bytesBefore;
+                    if (elapsed < best) {
+                        best = elapsed;
+                        bestBytes = bytes;
+                    }
+                }
+                System.out.printf("%-10s %-8s %14.0f %10s%n", labels[r], workload,
+                        operations / (best / 1e9), !measured ? "n/a" : String.format("%.1f", bestBytes / (double) operations));
+            }
+        }
+
+        if (checksums[0] != checksums[1]) {
+            System.out.println("FAILED: the registries disagree (" + checksums[0] + " vs " + checksums[1] + ")");
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+
+    /**
+     * Runs one workload over the pre-generated slots.
+     * @return A count that depends on every answer, so no check can be optimized away
+     */
+    private static long run(String workload, Registry registry, int[] doctorOf, int[] dayOf, int[] timeOf) {
+        long count = 0;
+        switch (workload) {
+            case "check":
+                for (int i = 0; i < doctorOf.length; i++) {
+                    if (registry.isFree(doctorOf[i], dayOf[i], timeOf[i])) {
+                        count++;
+                    }
+                }
+                break;
+            case "menu":
+                for (int i = 0; i < doctorOf.length; i++) {
+                    for (int time = 0; time < TIMES.length; time++) {
+                        if (registry.isFree(doctorOf[i], dayOf[i], time)) {
+                            count++;
+                        }
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < doctorOf.length; i++) {
+                    if (registry.tryBook(doctorOf[i], dayOf[i], timeOf[i])) {
+                        registry.release(doctorOf[i], dayOf[i], timeOf[i]);
+                        count++;
+                    }
+                }
+                break;
+        }
+        return count;
+    }
+
+    /**
+     * Bytes allocated by this thread so far, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
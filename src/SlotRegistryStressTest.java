@@ -0,0 +1,84 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress test for concurrent bookings. In every round all threads are
+ * released at once and each tries to book every slot of a fresh registry,
+ * so each slot is contended by every thread. Checks for:
+ *   - exactly one winner per slot: the winners add up to the slot count
+ *   - a consistent free-slot index: once every slot is taken no (day, time)
+ *     slot is reported open
+ *
+ * Usage: java SlotRegistryStressTest [threads] [rounds] [doctors]
+ * Exits with status 1 if a check fails.
+ */
+class SlotRegistryStressTest {
+    private static final int DAYS = 3;
+    private static final String[] TIMES = {"4:30 PM", "6:30 PM", "8:30 PM", "10:00 PM"};
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int doctorCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        List<Doctor> staff = new ArrayList<>();
+        for (int i = 0; i < doctorCount; i++) {
+            staff.add(new Doctor("Doctor " + i, 40, true, "01234567890", "Clinic", "Sports Medicine"));
+        }
+        DoctorRegistry doctors = new DoctorRegistry(staff);
+        int times = TIMES.length;
+        int slots = doctorCount * DAYS * times;
+
+        int wrongWinners = 0;
+        int wrongIndex = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            SlotRegistry registry = new SlotRegistry(doctors, DAYS, TIMES);
+            AtomicInteger won = new AtomicInteger();
+            CountDownLatch go = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int doctor = 0; doctor < doctorCount; doctor++) {
+                        for (int day = 0; day < DAYS; day++) {
+                            for (int time = 0; time < times; time++) {
+                                if (registry.tryBook(doctor, day, time)) {
+                                    won.incrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                });
+                workers[t].start();
+            }
+            go.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            if (won.get() != slots) {
+                wrongWinners++;
+            }
+            if (registry.nextOpenSlot(0) != -1) {
+                wrongIndex++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long calls = (long) rounds * threads * slots;
+        System.out.printf("%d tryBook calls on %d threads in %.1f s (%.1f M/s): %d rounds with a wrong winner count, %d with a stale free-slot index%n",
+                calls, threads, seconds, calls / seconds / 1e6, wrongWinners, wrongIndex);
+
+        boolean passed = wrongWinners == 0 && wrongIndex == 0;
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,475 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * PatientRepository backed by the comma-separated accounts.txt file.
+ *
+ * Changes are appended to a journal file instead of rewriting the base
+ * file; once the journal grows past a fixed fraction of the base file it is
+ * compacted back into it. Journal records are newer than the base file, so
+ * on startup they replace base records with the same username.
+ *
+ * Because the threshold grows with the base file, a compaction that
+ * rewrites B bytes happens at most once per B / JOURNAL_COMPACT_FRACTION
+ * journaled bytes, so the amortized cost of a save stays constant however
+ * many accounts are stored.
+ *
+ * All writes go through one committer thread, in submission order. Saves
+ * that arrive within GROUP_COMMIT_WINDOW_NANOS of each other are appended
+ * with one write and made durable with one fsync (group commit). Compaction
+ * writes a temporary file, fsyncs it and atomically renames it over the base
+ * file, so a crash leaves either the old or the new file, never a partial one.
+ *
+ * Single-account lookups go through a LazyPatientIndex (username to file
+ * offset, plus an LRU cache), which is only built if find/contains or
+ * forEachSummary are used. Compaction builds the index for the new file
+ * before swapping it in, so lookups are not blocked by the rescan.
+ */
+class TextFilePatientRepository implements PatientRepository {
+    /** Journal size (bytes) below which the journal is never compacted */
+    private static final long JOURNAL_COMPACT_MIN = 64 * 1024;
+    /** The journal is compacted once it exceeds 1 / JOURNAL_COMPACT_FRACTION of the base file */
+    private static final long JOURNAL_COMPACT_FRACTION = 4;
+    /** Number of hydrated patients kept by the lazy index */
+    private static final int LAZY_CACHE_CAPACITY = 1024;
+    /** How long the committer waits for more saves to share an fsync with */
+    private static final long GROUP_COMMIT_WINDOW_NANOS = 1_000_000;
+
+    private final String fileName;
+    private final String journalFileName;
+    /** Latest journal record per username; emptied by compaction */
+    private final Map<String, Patient> journaled = new LinkedHashMap<>();
+    private final BlockingQueue<PendingWrite> commitQueue = new LinkedBlockingQueue<>();
+    /** Set if the committer thread has stopped; later saves fail instead of waiting */
+    private volatile Throwable committerFailure;
+    private LazyPatientIndex index;
+
+    /**
+     * @param fileName The base accounts file (e.g. accounts.txt)
+     * @param journalFileName The journal file appended to between compactions
+     */
+    public TextFilePatientRepository(String fileName, String journalFileName) {
+        this.fileName = fileName;
+        this.journalFileName = journalFileName;
+        if (new File(journalFileName).exists()) {
+            for (Patient patient : loadFile(journalFileName)) {
+                journaled.put(patient.getUsername(), patient);
+            }
+        }
+        Thread committer = new Thread(this::runCommitter, "accounts-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * A queued save; compact marks a saveAll() that folds the journal afterwards.
+     */
+    private static class PendingWrite {
+        final List<Patient> patients;
+        final boolean compact;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(Collection<Patient> patients, boolean compact) {
+            this.patients = new ArrayList<>(patients);
+            this.compact = compact;
+        }
+    }
+
+    /**
+     * Parses one account line. Returns null for lines in an unknown format
+     * and for records whose fields are invalid (e.g. an age that is not a
+     * number), so one damaged line skips only its own account.
+     */
+    static Patient parseRecord(String line) {
+        String[] parts = line.split(",", -1);
+        if (parts.length == 7) {
+            // Full patient details format: username,password,name,age,gender,contact,address
+            try {
+                return new Patient(parts[0], parts[1], parts[2], Integer.parseInt(parts[3]), Boolean.parseBoolean(parts[4]), parts[5], parts[6]);
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException included
+                System.out.println("Skipping invalid account record for " + parts[0] + ": " + e.getMessage());
+                return null;
+            }
+        } else if (parts.length == 2) {
+            // Old format: username,password only (for backward compatibility)
+            return new Patient(parts[0], parts[1]);
+        }
+        return null;
+    }
+
+    /**
+     * Formats one account line in the 7-field format used by both files.
+     */
+    static String formatRecord(Patient patient) {
+        return patient.getUsername() + "," + patient.getPassword() + "," + patient.getName() + "," + patient.getAge() + "," + patient.isGender() + "," + patient.getContact_no() + "," + patient.getAddress();
+    }
+
+    /**
+     * Parses a whole file with AccountFileLoader, which maps it and parses
+     * line-aligned chunks in parallel; records are returned in file order.
+     */
+    private static List<Patient> loadFile(String name) {
+        try {
+            return AccountFileLoader.load(name);
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Error loading users: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public synchronized List<Patient> loadAll() {
+        List<Patient> patients = loadFile(fileName);
+        if (journaled.isEmpty()) {
+            return patients;
+        }
+        Map<String, Patient> merged = new LinkedHashMap<>();
+        for (Patient patient : patients) {
+            merged.put(patient.getUsername(), patient);
+        }
+        merged.putAll(journaled);
+        return new ArrayList<>(merged.values());
+    }
+
+    @Override
+    public synchronized Patient find(String username) {
+        Patient patient = journaled.get(username);
+        return patient != null ? patient : index().get(username);
+    }
+
+    @Override
+    public synchronized boolean contains(String username) {
+        return journaled.containsKey(username) || index().contains(username);
+    }
+
+    @Override
+    public synchronized void forEachSummary(BiConsumer<String, String> consumer) {
+        if (index == null) {
+            index = new LazyPatientIndex(fileName, LAZY_CACHE_CAPACITY);
+        }
+        index.rebuild(consumer);
+        for (Patient patient : journaled.values()) {
+            consumer.accept(patient.getUsername(), patient.getName());
+        }
+    }
+
+    private LazyPatientIndex index() {
+        if (index == null) {
+            index = new LazyPatientIndex(fileName, LAZY_CACHE_CAPACITY);
+            index.rebuild(null);
+        }
+        return index;
+    }
+
+    /**
+     * Appends the accounts to the journal and blocks until they are on disk.
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    @Override
+    public void save(Collection<Patient> patients) {
+        await(submit(patients));
+    }
+
+    /**
+     * Queues the accounts for the committer thread. Saves are written in the
+     * order they are submitted; the future completes after the fsync, or
+     * exceptionally with an UncheckedIOException if the write failed.
+     */
+    @Override
+    public CompletableFuture<Void> submit(Collection<Patient> patients) {
+        return enqueue(new PendingWrite(patients, false));
+    }
+
+    /**
+     * Folds the given accounts and the journal into the base file.
+     * Queued behind earlier saves so the journal never overrides newer data.
+     * @throws UncheckedIOException if the base file could not be rewritten
+     */
+    @Override
+    public void saveAll(Collection<Patient> patients) {
+        await(enqueue(new PendingWrite(patients, true)));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingWrite write) {
+        commitQueue.add(write);
+        Throwable failure = committerFailure;
+        if (failure != null) {
+            // The committer is gone and will never take this write
+            write.done.completeExceptionally(new IllegalStateException("Account committer stopped: " + failure, failure));
+        }
+        return write.done;
+    }
+
+    /**
+     * Waits for a write and rethrows its failure unwrapped.
+     */
+    private static void await(CompletableFuture<Void> done) {
+        try {
+            done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Committer loop: takes the first queued save, waits briefly so that
+     * concurrent saves can join it, then writes everything queued so far.
+     * Runs of plain saves share one journal append and one fsync.
+     *
+     * A save's future only completes normally once its records are on disk.
+     * If a write fails, the saves it carried fail with the IOException and
+     * the loop carries on with the next batch. A RuntimeException fails the
+     * rest of the batch the same way, so callers never wait on a batch the
+     * committer gave up on. If the thread dies anyway (an Error), every queued
+     * and later save fails instead of blocking forever.
+     */
+    private void runCommitter() {
+        List<PendingWrite> batch = new ArrayList<>();
+        try {
+            while (true) {
+                try {
+                    batch.add(commitQueue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                LockSupport.parkNanos(GROUP_COMMIT_WINDOW_NANOS);
+                commitQueue.drainTo(batch);
+                try {
+                    commitBatch(batch);
+                } catch (RuntimeException e) {
+                    System.out.println("Error saving users: " + e);
+                    fail(batch, e);
+                }
+                batch.clear();
+            }
+        } catch (Error e) {
+            committerFailure = e;
+            throw e;
+        } finally {
+            Throwable failure = committerFailure != null ? committerFailure : new IllegalStateException("Account committer stopped");
+            committerFailure = failure;
+            fail(batch, failure);
+            List<PendingWrite> remaining = new ArrayList<>();
+            commitQueue.drainTo(remaining);
+            fail(remaining, failure);
+        }
+    }
+
+    private void commitBatch(List<PendingWrite> batch) {
+        int runStart = 0;
+        for (int i = 0; i <= batch.size(); i++) {
+            if (i == batch.size() || batch.get(i).compact) {
+                List<PendingWrite> run = batch.subList(runStart, i);
+                try {
+                    appendToJournal(run);
+                    complete(run);
+                } catch (IOException e) {
+                    System.out.println("Error saving user: " + e.getMessage());
+                    fail(run, new UncheckedIOException(e));
+                }
+                if (i < batch.size()) {
+                    PendingWrite write = batch.get(i);
+                    try {
+                        compact(write.patients);
+                        write.done.complete(null);
+                    } catch (IOException e) {
+                        System.out.println("Error saving users: " + e.getMessage());
+                        write.done.completeExceptionally(new UncheckedIOException(e));
+                    }
+                }
+                runStart = i + 1;
+            }
+        }
+        if (journalNeedsCompaction()) {
+            try {
+                compact(new ArrayList<>());
+            } catch (IOException e) {
+                // Everything is still in the journal, so no save is affected
+                System.out.println("Error compacting accounts: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void complete(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            write.done.complete(null);
+        }
+    }
+
+    private static void fail(List<PendingWrite> writes, Throwable failure) {
+        for (PendingWrite write : writes) {
+            write.done.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Whether the journal has grown past max(JOURNAL_COMPACT_MIN, base size / JOURNAL_COMPACT_FRACTION).
+     */
+    private boolean journalNeedsCompaction() {
+        long threshold = Math.max(JOURNAL_COMPACT_MIN, new File(fileName).length() / JOURNAL_COMPACT_FRACTION);
+        return new File(journalFileName).length() > threshold;
+    }
+
+    /**
+     * Appends the records of several saves with one write and one fsync.
+     * Only the committer thread appends, so the lock is taken just to
+     * publish the records to lookups once they are durable. If the write
+     * fails, the journal is truncated back to its previous length, so a
+     * partly written record cannot end up in front of the next batch.
+     */
+    private void appendToJournal(List<PendingWrite> writes) throws IOException {
+        if (writes.isEmpty()) {
+            return;
+        }
+        File journal = new File(journalFileName);
+        long goodLength = journal.length();
+        try (FileOutputStream out = new FileOutputStream(journal, true);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (PendingWrite write : writes) {
+                for (Patient patient : write.patients) {
+                    writer.write(formatRecord(patient));
+                    writer.newLine();
+                }
+            }
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(goodLength);
+                channel.force(true);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            for (PendingWrite write : writes) {
+                for (Patient patient : write.patients) {
+                    journaled.put(patient.getUsername(), patient);
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams the base file into a temporary file, replacing records that
+     * have a newer journaled version and appending new accounts. The temporary
+     * file is fsynced and atomically renamed over the base file, and the
+     * rename itself is fsynced through the directory before the journal is
+     * cleared. Unchanged records are copied verbatim.
+     *
+     * Only the committer thread writes, so the journal cannot change while
+     * the file is copied; the repository lock is only held to take a snapshot
+     * of the journal and to swap in the new file and index. In lazy mode the
+     * new file is indexed before the swap, so find() and contains() keep
+     * using the old index meanwhile instead of waiting for the rescan.
+     * @param patients Accounts to record in addition to the journal
+     * @throws IOException if the new base file could not be written or renamed;
+     *         the old base file and the journal are then left as they were
+     */
+    private void compact(List<Patient> patients) throws IOException {
+        Map<String, Patient> snapshot;
+        boolean indexed;
+        synchronized (this) {
+            for (Patient patient : patients) {
+                journaled.put(patient.getUsername(), patient);
+            }
+            snapshot = new LinkedHashMap<>(journaled);
+            indexed = index != null;
+        }
+        File base = new File(fileName);
+        File temp = new File(fileName + ".tmp");
+        Set<String> written = new HashSet<>();
+        try (FileOutputStream out = new FileOutputStream(temp);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            if (base.exists()) {
+                try (BufferedReader reader = Files.newBufferedReader(base.toPath(), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.trim().isEmpty()) {
+                            continue;
+                        }
+                        int comma = line.indexOf(',');
+                        String username = comma < 0 ? line : line.substring(0, comma);
+                        Patient patient = snapshot.get(username);
+                        if (patient == null) {
+                            writer.write(line);
+                        } else if (written.add(username)) {
+                            writer.write(formatRecord(patient));
+                        } else {
+                            continue;
+                        }
+                        writer.newLine();
+                    }
+                }
+            }
+            for (Patient patient : snapshot.values()) {
+                if (!written.contains(patient.getUsername())) {
+                    writer.write(formatRecord(patient));
+                    writer.newLine();
+                }
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        LazyPatientIndex rebuilt = null;
+        if (indexed) {
+            rebuilt = new LazyPatientIndex(fileName, LAZY_CACHE_CAPACITY);
+            rebuilt.rebuildFrom(temp.getPath(), null);
+        }
+        synchronized (this) {
+            try {
+                Files.move(temp.toPath(), base.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), base.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            // The journal may only go once the new base file survives a crash
+            syncDirectory(base);
+            journaled.clear();
+            File journal = new File(journalFileName);
+            if (journal.exists() && !journal.delete()) {
+                System.out.println("Error clearing journal: " + journalFileName);
+            }
+            if (rebuilt != null) {
+                index = rebuilt;
+            } else if (index != null) {
+                // Built by a lookup during the copy, from the old file
+                index = null;
+            }
+        }
+    }
+
+    /**
+     * Fsyncs the directory holding a file, so a rename into it is durable.
+     */
+    private static void syncDirectory(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a directory; the rename is still atomic
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.time.DayOfWeek;
+
 /**
  * Enumeration representing available weekdays for appointments.
  * Limits appointment scheduling to specific days (Sunday, Tuesday, Thursday).
@@ -10,6 +12,30 @@ public enum Weekday {
     TUESDAY,
     THURSDAY;
 
+    /**
+     * Maps a calendar day of the week to the clinic weekday.
+     * @return The matching Weekday, or null if there are no appointments that day
+     */
+    public static Weekday fromDayOfWeek(DayOfWeek dayOfWeek) {
+        switch (dayOfWeek) {
+            case SUNDAY:
+                return SUNDAY;
+            case TUESDAY:
+                return TUESDAY;
+            case THURSDAY:
+                return THURSDAY;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Maps the clinic weekday to the calendar day of the week.
+     */
+    public DayOfWeek toDayOfWeek() {
+        return DayOfWeek.valueOf(name());
+    }
+
     /**
      * Returns a human-readable string representation of the weekday.
      * Converts enum name (e.g., "SUNDAY") to formatted string (e.g., "Sunday").
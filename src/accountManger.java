@@ -1,5 +1,16 @@
-import java.io.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Manages patient accounts and authentication in the system.
@@ -9,122 +20,440 @@ import java.util.ArrayList;
  * Rationale: Separating account management into its own class
  * follows the Single Responsibility Principle and makes the code
  * more maintainable and testable.
+ *
+ * Accounts are indexed by username so that signup and login checks
+ * are constant-time lookups instead of scans over every patient.
+ *
+ * Storage is delegated to a PatientRepository, chosen with the system
+ * property accounts.store: "text" (default; accounts.txt plus journal),
+ * "binary" (accounts.bin plus journal), "memory", or "jdbc" (URL from
+ * accounts.jdbc.url, default H2 file mode).
+ *
+ * In lazy mode (-Daccounts.lazy=true) accounts are not loaded at startup;
+ * patients are fetched from the repository on demand. The in-memory map then
+ * only holds accounts that were created or changed in this process, and the
+ * patient search index is filled from storage on the first search.
+ *
+ * The account map is a ConcurrentHashMap, so lookups never lock and
+ * concurrent sessions can sign up and log in safely. reserveUsername is the
+ * atomic check-and-create used by signup; file writes are serialized on
+ * this object.
+ *
+ * persistLater() is the write-behind path for UI code: it only marks the
+ * account dirty, repeated marks of one account are merged, and a background
+ * thread appends the dirty accounts to the journal. flush() waits until every
+ * account marked before the call has been written.
  */
 class AccountManager {
     private static final String FILE_NAME = "accounts.txt";
-    private final ArrayList<Patient> users = new ArrayList<>();
+    private static final String JOURNAL_FILE_NAME = "accounts.journal";
+    private static final String BINARY_FILE_NAME = "accounts.bin";
+    private static final String BINARY_JOURNAL_FILE_NAME = "accounts.bin.journal";
+    private static final String DEFAULT_JDBC_URL = "jdbc:h2:./accounts";
+    /** Directory holding one injury/reservation/report history segment per patient */
+    private static final String HISTORY_DIRECTORY = "history";
+
+    /** Username -> Patient */
+    private final Map<String, Patient> users = new ConcurrentHashMap<>();
+    /** Runs write-behind drains, one at a time */
+    private final ExecutorService backgroundWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "accounts-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Accounts waiting for write-behind, keyed by username so repeated updates merge */
+    private final Map<String, Patient> dirty = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainPending = new AtomicBoolean(false);
+    private final PatientHistoryStore historyStore = new PatientHistoryStore(HISTORY_DIRECTORY);
+    private final AuthenticationService authService = new AuthenticationService();
+    private final PatientSearchIndex searchIndex = new PatientSearchIndex();
+    /** In lazy mode stored accounts are only added to searchIndex on the first search */
+    private volatile boolean searchIndexComplete;
+    private final Object searchIndexLock = new Object();
+    private final PatientRepository repository;
+    private final boolean lazy;
 
     /**
      * Constructs an AccountManager and loads existing accounts from file.
-     * Automatically populates the users list on initialization.
-     * Constructor is used to load the accounts from the file.
+     * Lazy loading is enabled with the system property accounts.lazy=true.
      */
     public AccountManager() {
-        loadUsersFromFile();
+        this(Boolean.getBoolean("accounts.lazy"));
     }
 
     /**
-     * Loads patient accounts from the accounts.txt file.
-     * Each line should contain "username,password" format.
-     * Creates Patient objects with minimal information (username/password only).
+     * Constructs an AccountManager on the repository selected by accounts.store.
+     * @param lazyLoading true to fetch patients from storage on demand
      */
-    private void loadUsersFromFile() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_NAME))) {
-            String line;
-            while ((line = reader.readLine()) != null && !line.trim().isEmpty()) {
-                String[] parts = line.split(",");
-                if (parts.length == 7) {
-                    // Full patient details format: username,password,name,age,gender,contact,address
-                    users.add(new Patient(parts[0], parts[1], parts[2], Integer.parseInt(parts[3]), Boolean.parseBoolean(parts[4]), parts[5], parts[6]));
-                } else if (parts.length == 2) {
-                    // Old format: username,password only (for backward compatibility)
-                    users.add(new Patient(parts[0], parts[1]));
-                }
+    public AccountManager(boolean lazyLoading) {
+        this(createRepository(), lazyLoading);
+    }
+
+    /**
+     * Constructs an AccountManager and loads existing accounts from the repository.
+     * Automatically populates the users list on initialization.
+     * @param repository Where accounts are stored
+     * @param lazyLoading true to fetch patients from the repository on demand
+     */
+    public AccountManager(PatientRepository repository, boolean lazyLoading) {
+        this.repository = repository;
+        this.lazy = lazyLoading;
+        if (!lazyLoading) {
+            List<Patient> stored;
+            try {
+                stored = repository.loadAll();
+            } catch (RuntimeException e) {
+                System.out.println("Error loading users: " + e.getMessage());
+                stored = new ArrayList<>();
+            }
+            for (Patient patient : stored) {
+                patient.attachHistory(historyStore);
+                users.put(patient.getUsername(), patient);
+                searchIndex.update(patient.getUsername(), patient.getName());
             }
-        } catch (IOException e) {
-            System.out.println("Error loading users: " + e.getMessage());
+            searchIndexComplete = true;
+        }
+    }
+
+    /**
+     * Creates the repository named by the accounts.store system property.
+     */
+    static PatientRepository createRepository() {
+        String store = System.getProperty("accounts.store", "text");
+        switch (store) {
+            case "memory":
+                return new InMemoryPatientRepository();
+            case "jdbc":
+                return new JdbcPatientRepository(System.getProperty("accounts.jdbc.url", DEFAULT_JDBC_URL));
+            case "text":
+                return new TextFilePatientRepository(FILE_NAME, JOURNAL_FILE_NAME);
+            case "binary":
+                return new BinaryPatientRepository(BINARY_FILE_NAME, BINARY_JOURNAL_FILE_NAME);
+            default:
+                throw new IllegalArgumentException("Unknown account store: " + store);
+        }
+    }
+
+    /**
+     * Atomically claims a username and creates its account.
+     * The password is stored as a salted hash, so this blocks for the
+     * duration of a PBKDF2 hash; UI code should call it off the event
+     * dispatch thread.
+     * Of several concurrent calls for the same username exactly one succeeds.
+     * Note: This does not persist to file - call persistUser() or saveAllUsers() to persist.
+     * @return The new Patient, or null if the username is already taken
+     * @throws RejectedExecutionException if too many passwords are being
+     *         hashed or verified at once; nothing is created
+     */
+    public Patient reserveUsername(String username, String password) {
+        Patient patient = new Patient(username, authService.hash(password));
+        return addUser(patient) ? patient : null;
+    }
+
+    /**
+     * Atomically adds a patient whose username is not taken yet.
+     * The patient's password must already be hashed (see hashPassword()).
+     * Note: This does not persist to file - call persistUser() or saveAllUsers() to persist.
+     * @return true if the patient was added, false if the username is taken
+     */
+    public boolean addUser(Patient patient) {
+        String username = patient.getUsername();
+        if (lazy && repository.contains(username)) {
+            return false;
+        }
+        patient.attachHistory(historyStore);
+        if (users.putIfAbsent(username, patient) != null) {
+            return false;
         }
+        searchIndex.update(username, patient.getName());
+        return true;
+    }
+
+    /**
+     * Hashes a password in the format stored for accounts, on the
+     * AuthenticationService worker pool.
+     * @throws RejectedExecutionException if the pool is saturated
+     */
+    public String hashPassword(String password) {
+        return authService.hash(password);
     }
 
     /**
      * Adds a new patient to the in-memory list.
-     * Note: This does not persist to file - call saveAllUsers() to persist.
+     * Replaces any account with the same username; signup should use
+     * reserveUsername() instead.
+     * Note: This does not persist to file - call persistUser() or saveAllUsers() to persist.
      * @param patient The Patient object to add to the account list
      */
     public void saveUser(Patient patient) {
-        users.add(patient);
+        patient.attachHistory(historyStore);
+        users.put(patient.getUsername(), patient);
+        searchIndex.update(patient.getUsername(), patient.getName());
     }
     
     /**
      * Updates an existing patient in the in-memory list.
      * Replaces the existing patient with the same username.
-     * Note: This does not persist to file - call saveAllUsers() to persist.
+     * Note: This does not persist to file - call persistUser() or saveAllUsers() to persist.
      * @param updatedPatient The Patient object with updated information
      * @return true if the patient was found and updated, false otherwise
      */
     public boolean updateUser(Patient updatedPatient) {
-        for (int i = 0; i < users.size(); i++) {
-            if (users.get(i).getUsername().equals(updatedPatient.getUsername())) {
-                users.set(i, updatedPatient);
-                return true;
-            }
+        updatedPatient.attachHistory(historyStore);
+        String username = updatedPatient.getUsername();
+        boolean updated;
+        if (lazy && !users.containsKey(username) && repository.contains(username)) {
+            users.put(username, updatedPatient);
+            updated = true;
+        } else {
+            updated = users.replace(username, updatedPatient) != null;
         }
-        return false;
+        if (updated) {
+            searchIndex.update(username, updatedPatient.getName());
+        }
+        return updated;
     }
             
     /**
-     * Persists all pat ient accounts to the accounts.txt file.
-     * Overwrites the existing file with current account data.
-     * Format: Each line contains "username,password".
-     * Handles file I/O errors gracefully without crashing the application.
+     * Persists a single patient through the repository (for the text store,
+     * one journal append, independent of the number of accounts).
+     * The record written is the account's state in the map at the time of the
+     * write, so racing updates cannot leave storage behind the map.
+     * @param patient The patient whose current state should be made durable
+     */
+    public void persistUser(Patient patient) {
+        persistUsers(Collections.singletonList(patient));
+    }
+
+    /**
+     * Persists several patients with a single repository write.
+     * @param patients The patients whose current state should be made durable
+     * @throws RuntimeException (e.g. UncheckedIOException) if the write failed;
+     *         the accounts are then not durable
+     */
+    public void persistUsers(Collection<Patient> patients) {
+        CompletableFuture<Void> durable;
+        synchronized (this) {
+            List<Patient> current = new ArrayList<>(patients.size());
+            for (Patient patient : patients) {
+                current.add(users.getOrDefault(patient.getUsername(), patient));
+            }
+            durable = repository.submit(current);
+        }
+        // Wait outside the lock so concurrent callers can share one disk flush
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Marks a patient for write-behind persistence and returns immediately.
+     * The account is written to the repository on the background writer thread;
+     * several calls for the same account before it is written produce one record.
+     * @param patient The patient whose state should be persisted soon
+     */
+    public void persistLater(Patient patient) {
+        dirty.put(patient.getUsername(), patient);
+        if (drainPending.compareAndSet(false, true)) {
+            backgroundWriter.execute(() -> {
+                try {
+                    drainDirty();
+                } catch (RuntimeException e) {
+                    // The accounts stay dirty and are retried by the next drain or flush()
+                    System.out.println("Error saving users: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Durability barrier: blocks until every account passed to persistLater()
+     * before this call has been written to the repository.
+     */
+    public void flush() {
+        try {
+            backgroundWriter.submit(this::drainDirty).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.out.println("Error saving users: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Writes all dirty accounts in one repository write. Runs on the background writer.
+     * If the write fails, the accounts stay dirty (unless marked again since)
+     * so that the next drain or flush() retries them.
      */
-     public void saveAllUsers() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_NAME, false))) {
-            for (Patient patient : users) {
-                writer.write(patient.getUsername() + "," + patient.getPassword() + "," + patient.getName() + "," + patient.getAge() + "," + patient.isGender() + "," + patient.getContact_no() + "," + patient.getAddress() );
-                writer.newLine();
+    private void drainDirty() {
+        drainPending.set(false);
+        List<Patient> batch = new ArrayList<>();
+        for (String username : dirty.keySet()) {
+            Patient patient = dirty.remove(username);
+            if (patient != null) {
+                batch.add(patient);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            persistUsers(batch);
+        } catch (RuntimeException e) {
+            for (Patient patient : batch) {
+                dirty.putIfAbsent(patient.getUsername(), patient);
             }
-        } catch (IOException e) {
-            System.out.println("Error saving users: " + e.getMessage());
+            throw e;
         }
     }
 
+    /**
+     * Persists all patient accounts held in memory and lets the repository
+     * consolidate its storage (for the text store, the journal is folded into
+     * accounts.txt). Accounts only present in storage are kept.
+     * @throws RuntimeException (e.g. UncheckedIOException) if storage could not be written
+     */
+    public synchronized void saveAllUsers() {
+        repository.saveAll(users.values());
+    }
+
+    /**
+     * Writes pending write-behind updates and closes the repository.
+     * Call once on shutdown, after the last save.
+     */
+    public void close() {
+        flush();
+        repository.close();
+    }
+
     /**
      * Checks if a username is already taken by another patient.
      * Used during account registration to prevent duplicate usernames.
      */
     public boolean isUsernameTaken(String username) {
-        for (Patient patient : users) {
-            if (patient.getUsername().equals(username)) {
-                return true;
-            }
-        }
-        return false;
+        return users.containsKey(username) || (lazy && repository.contains(username));
     }
 
     /**
      * Validates user credentials for login.
-     * Checks if the username exists and the password matches.
+     * Checks if the username exists and the password matches. Verification
+     * runs on the AuthenticationService worker pool. An unknown username is
+     * checked against a dummy hash, so it takes as long as a wrong password.
+     * A legacy plain-text password is replaced by its hash after the first
+     * successful login; if the worker pool is saturated the upgrade waits
+     * for a later login.
+     * Blocks for the duration of a PBKDF2 hash; UI code should call it off
+     * the event dispatch thread.
      */
     public boolean validateUser(String username, String password) {
-        for (Patient patient : users) {
-            if (patient.getUsername().equals(username) && patient.getPassword().equals(password)) {
+        Patient patient = getUser(username);
+        if (patient == null) {
+            return authService.verifyUnknownUser(password);
+        }
+        if (!authService.verify(patient.getPassword(), password)) {
+            return false;
+        }
+        if (AuthenticationService.isLegacy(patient.getPassword())) {
+            String hashed;
+            try {
+                hashed = authService.hash(password);
+            } catch (RejectedExecutionException e) {
                 return true;
             }
+            Patient upgraded = patient.withPassword(hashed);
+            if (updateUser(upgraded)) {
+                persistLater(upgraded);
+            }
         }
-        return false;
+        return true;
+    }
+
+    /**
+     * Finds patients whose username or name starts with the given text,
+     * ignoring case. Backs front-desk search and autocomplete.
+     * @param prefix The typed text
+     * @param limit Maximum number of patients to return
+     * @return Up to limit matching patients in alphabetical order
+     */
+    public List<Patient> searchPatients(String prefix, int limit) {
+        ensureSearchIndex();
+        List<Patient> matches = new ArrayList<>();
+        for (String username : searchIndex.search(prefix, limit)) {
+            Patient patient = getUser(username);
+            if (patient != null) {
+                matches.add(patient);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * In lazy mode, adds every stored account to the search index the first
+     * time a search runs. Startup then stays a fraction of an eager load for
+     * sessions that never search. Accounts created or changed in this process
+     * are already indexed with their current name and are not overwritten by
+     * the stored one.
+     */
+    private void ensureSearchIndex() {
+        if (searchIndexComplete) {
+            return;
+        }
+        synchronized (searchIndexLock) {
+            if (searchIndexComplete) {
+                return;
+            }
+            try {
+                repository.forEachSummary((username, name) -> {
+                    if (!users.containsKey(username)) {
+                        searchIndex.update(username, name);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Searched without the stored accounts this time; retried on the next search
+                System.out.println("Error loading users: " + e.getMessage());
+                return;
+            }
+            for (Patient patient : users.values()) {
+                searchIndex.update(patient.getUsername(), patient.getName());
+            }
+            searchIndexComplete = true;
+        }
+    }
+
+    /**
+     * Login throughput and p99 latency observed by the authentication service.
+     */
+    public String describeLoginStats() {
+        return authService.describeStats();
+    }
+
+    /**
+     * Reads every patient's persisted reservations straight from the history
+     * files, without loading the accounts. Used to verify the booking calendar.
+     */
+    public List<Appointment> loadAllReservations() {
+        return historyStore.loadAllReservations();
     }
 
     /**
      * Retrieves a Patient object by username.
      * Useful for loading patient data after successful login.
+     * In lazy mode, patients not changed in this process are fetched from
+     * the repository on each access.
      */
     public Patient getUser(String username) {
-        for (Patient patient : users) {
-            if (patient.getUsername().equals(username)) {
-                return patient;
+        Patient patient = users.get(username);
+        if (patient == null && lazy) {
+            patient = repository.find(username);
+            if (patient != null) {
+                patient.attachHistory(historyStore);
             }
         }
-        return null;
+        return patient;
     }
 }
\ No newline at end of file